@@ -0,0 +1,226 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * AdaptiveHuffman compresses a stream in a single pass, for input that
+ * cannot be read twice or buffered in full, such as data arriving over a
+ * pipe. No code table is stored. The encoder and the decoder both start
+ * from the same flat model, in which every byte value has an 8-bit code,
+ * and update it identically as symbols go by: every symbol is counted, and
+ * the codes are rebuilt from the counts at fixed points in the stream.
+ * Rebuilds happen often at first (after 256 symbols, then 512, and so on)
+ * and then every REBUILD_INTERVAL symbols. Once the counts reach
+ * DECAY_LIMIT they are halved, so the model follows data whose
+ * statistics drift over time.
+ *
+ * The compressed stream consists of:
+ * - A magic string "HUFA" to identify the format
+ * - Any number of segments, each holding the number of original bytes in
+ *   the segment (int, 1 to SEGMENT_SIZE), the length of its bitstream
+ *   (int) and the bitstream itself
+ * - An int 0 marking the end of the stream
+ * Segments only frame the bits: the model carries over from one segment to
+ * the next. The encoder ends a segment whenever its input has no more
+ * bytes ready, so live data is passed on without waiting for a full
+ * segment. Memory use is constant, whatever the length of the stream.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class AdaptiveHuffman {
+
+    /** Largest number of original bytes in one segment. */
+    static final int SEGMENT_SIZE = 1 << 16;
+
+    /** Code length limit, which bounds the size of a segment's bitstream. */
+    static final int MAX_CODE_LENGTH = 15;
+
+    /** Largest number of symbols between two rebuilds of the codes. */
+    private static final int REBUILD_INTERVAL = 1 << 14;
+
+    /** Total count at which all counts are halved. */
+    private static final long DECAY_LIMIT = 1 << 20;
+
+    /** Largest bitstream a segment can have. */
+    private static final int MAX_PAYLOAD = (SEGMENT_SIZE * MAX_CODE_LENGTH + 7) / 8;
+
+    private AdaptiveHuffman() {
+    }
+
+    /**
+     * Compresses everything that can be read from the input until it ends.
+     * Neither stream is closed, but the output is flushed after every
+     * segment.
+     *
+     * @param in  the stream of original bytes
+     * @param out the stream receiving the compressed data
+     * @throws IOException if an I/O error occurs
+     */
+    public static void compress(InputStream in, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeBytes("HUFA");
+
+        Model model = new Model(false);
+        byte[] raw = new byte[SEGMENT_SIZE];
+        byte[] packed = new byte[MAX_PAYLOAD];
+
+        while (true) {
+            // Take whatever is ready, blocking only for the first byte
+            int n = in.read(raw, 0, SEGMENT_SIZE);
+            if (n < 0) {
+                break;
+            }
+            while (n < SEGMENT_SIZE && in.available() > 0) {
+                int r = in.read(raw, n, SEGMENT_SIZE - n);
+                if (r < 0) {
+                    break;
+                }
+                n += r;
+            }
+            if (n == 0) {
+                continue;
+            }
+
+            HuffmanCompressor.BitOutputStream bits = new HuffmanCompressor.BitOutputStream(packed, 0);
+            for (int i = 0; i < n; i++) {
+                int symbol = raw[i] & 0xFF;
+                bits.writeBits(model.codes[symbol], model.lengths[symbol]);
+                model.update(symbol);
+            }
+            bits.flush();
+
+            data.writeInt(n);
+            data.writeInt(bits.position());
+            data.write(packed, 0, bits.position());
+            data.flush();
+        }
+
+        data.writeInt(0);
+        data.flush();
+    }
+
+    /**
+     * Decompresses a stream written by compress, up to its end marker.
+     * Neither stream is closed.
+     *
+     * @param in  the stream of compressed data
+     * @param out the stream receiving the original bytes
+     * @throws IOException if the data is not a valid adaptive stream or
+     *                     an I/O error occurs
+     */
+    public static void decompress(InputStream in, OutputStream out) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[4];
+        data.readFully(magic);
+        if (!new String(magic).equals("HUFA")) {
+            throw new IOException("Not an adaptive Huffman stream");
+        }
+        decodeSegments(data, out);
+    }
+
+    /**
+     * Decodes the segments that follow the magic string of an adaptive stream.
+     *
+     * @param in  the compressed data, positioned after the magic string
+     * @param out the stream receiving the original bytes
+     * @throws IOException if a segment is corrupt or an I/O error occurs
+     */
+    static void decodeSegments(DataInputStream in, OutputStream out) throws IOException {
+        Model model = new Model(true);
+        byte[] raw = new byte[SEGMENT_SIZE];
+        byte[] packed = new byte[MAX_PAYLOAD];
+
+        while (true) {
+            int n = in.readInt();
+            if (n == 0) {
+                break;
+            }
+            int payloadLen = in.readInt();
+            if (n < 0 || n > SEGMENT_SIZE || payloadLen < 0 || payloadLen > MAX_PAYLOAD) {
+                throw new IOException("Corrupt segment header");
+            }
+            in.readFully(packed, 0, payloadLen);
+
+            HuffmanCompressor.BitInputStream bits =
+                    new HuffmanCompressor.BitInputStream(ByteBuffer.wrap(packed, 0, payloadLen));
+            for (int i = 0; i < n; i++) {
+                int symbol = model.table.decode(bits);
+                raw[i] = (byte) symbol;
+                model.update(symbol);
+            }
+            out.write(raw, 0, n);
+        }
+        out.flush();
+    }
+
+    /**
+     * Model holds the symbol counts and the codes derived from them. The
+     * encoder and decoder each keep one and feed it the same symbols, so
+     * they rebuild the same codes at the same points.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    private static final class Model {
+        private final boolean decoding;
+        private final long[] counts = new long[256];
+        private long total = 256;
+        private int interval = 1 << 8;
+        private int untilRebuild = interval;
+
+        int[] codes = new int[256];
+        int[] lengths = new int[256];
+        HuffmanDecodeTable table;
+
+        Model(boolean decoding) throws IOException {
+            this.decoding = decoding;
+            // Every byte value starts with a count of 1, giving flat 8-bit codes
+            Arrays.fill(counts, 1);
+            rebuild();
+        }
+
+        /**
+         * Counts a symbol, rebuilding the codes when the next rebuild is due.
+         *
+         * @param symbol the symbol that was just coded
+         * @throws IOException if the codes cannot be rebuilt
+         */
+        void update(int symbol) throws IOException {
+            counts[symbol]++;
+            total++;
+            if (--untilRebuild == 0) {
+                if (total >= DECAY_LIMIT) {
+                    total = 0;
+                    for (int s = 0; s < 256; s++) {
+                        counts[s] = Math.max(1, counts[s] / 2);
+                        total += counts[s];
+                    }
+                }
+                rebuild();
+                interval = Math.min(2 * interval, REBUILD_INTERVAL);
+                untilRebuild = interval;
+            }
+        }
+
+        /**
+         * Rebuilds the codes, and the decoding table if decoding, from the
+         * current counts.
+         *
+         * @throws IOException if the codes cannot be built
+         */
+        private void rebuild() throws IOException {
+            lengths = HuffmanCompressor.buildCodeLengths(counts, MAX_CODE_LENGTH);
+            long[] canonical = CanonicalCode.assignCodes(lengths);
+            if (decoding) {
+                table = HuffmanDecodeTable.build(canonical, lengths);
+                return;
+            }
+            for (int s = 0; s < 256; s++) {
+                codes[s] = (int) canonical[s];
+            }
+        }
+    }
+}
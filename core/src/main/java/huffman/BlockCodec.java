@@ -0,0 +1,532 @@
+package huffman;
+
+import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * BlockCodec encodes and decodes the independent blocks of a HUF4 block
+ * container. Each block carries its own code table, so blocks can be
+ * compressed and decompressed in any order and on any thread.
+ *
+ * An encoded block record consists of:
+ * - The number of original bytes in the block (int, never 0)
+ * - The block mode (byte), MODE_STORED, MODE_HUFFMAN, MODE_ORDER1,
+ *   MODE_INTERLEAVED, MODE_RUN or MODE_DICTIONARY
+ * - The length of the payload that follows (int)
+ * - The payload itself
+ * For MODE_HUFFMAN the payload is a code length table, as described in
+ * CanonicalCode, followed by the encoded bits. MODE_INTERLEAVED has the
+ * same code length table, then the byte sizes of the first STREAMS - 1
+ * bitstreams (ints) and the STREAMS bitstreams themselves; the symbol at
+ * index i of the block goes to stream i % STREAMS. For MODE_ORDER1 it holds a
+ * code table per context, as described in ContextCodec. For MODE_STORED
+ * it is the original bytes, which is used when Huffman coding would not
+ * save space. A MODE_RUN block repeats a single byte value, which is its
+ * whole payload. A MODE_DICTIONARY block holds the ID of a trained
+ * HuffmanDictionary (int) followed by bits coded with that dictionary's
+ * table. The encoder picks whichever mode gives the smallest block.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class BlockCodec {
+
+    /** Block whose payload is the original bytes, uncompressed. */
+    static final int MODE_STORED = 0;
+
+    /** Block whose payload is a code length table and a Huffman bitstream. */
+    static final int MODE_HUFFMAN = 1;
+
+    /** Block coded with order-1 context modeling, see ContextCodec. */
+    static final int MODE_ORDER1 = 2;
+
+    /** Block whose symbols are split over STREAMS independent bitstreams. */
+    static final int MODE_INTERLEAVED = 3;
+
+    /** Block made of a single repeated byte, which is the whole payload. */
+    static final int MODE_RUN = 4;
+
+    /** Block coded with the table of a trained HuffmanDictionary. */
+    static final int MODE_DICTIONARY = 5;
+
+    /** Number of bitstreams in a MODE_INTERLEAVED block. */
+    static final int STREAMS = 4;
+
+    /** Size of the fields written before each block payload. */
+    static final int BLOCK_HEADER_SIZE = 9;
+
+    private BlockCodec() {
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer as a single block record. The
+     * block gets its own frequency table, Huffman tree and canonical codes.
+     * The buffer may be a heap buffer or a slice of a mapped file; its
+     * position is left unchanged.
+     *
+     * With context modeling enabled, an order-1 coding of the block is
+     * planned as well and used if it comes out smaller. With interleaving
+     * enabled, order-0 blocks are written as STREAMS bitstreams so the
+     * decoder can work on several symbols at once.
+     *
+     * With a dictionary, the block is coded with the dictionary's table
+     * unless its own table would be smaller. When the entropy of the block
+     * shows that its own table could not win, no tree is built at all, and
+     * the same bound stores incompressible blocks without building one.
+     *
+     * @param data            buffer whose remaining bytes (at least 1) form the block
+     * @param maxCodeLength   the longest code length the block may use
+     * @param contextModeling whether to also try MODE_ORDER1
+     * @param interleaved     whether to write order-0 blocks as MODE_INTERLEAVED
+     * @param dictionary      a trained dictionary to try, or null
+     * @return the complete block record, header included
+     * @throws IOException if the block cannot be encoded
+     */
+    static byte[] encode(ByteBuffer data, int maxCodeLength, boolean contextModeling, boolean interleaved,
+                         HuffmanDictionary dictionary) throws IOException {
+        return writeRecord(data, null, maxCodeLength, contextModeling, interleaved, dictionary).array();
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer as a single block record, as
+     * the other form of encode does, but writes the record straight into
+     * the caller's buffer, which may be heap or direct. No part of the
+     * record is built anywhere else first.
+     *
+     * @param data            buffer whose remaining bytes (at least 1) form the block
+     * @param out             buffer receiving the record at its position, with room
+     *                        for maxRecordLength(data.remaining()) bytes; its position
+     *                        is moved past the record
+     * @param maxCodeLength   the longest code length the block may use
+     * @param contextModeling whether to also try MODE_ORDER1
+     * @param interleaved     whether to write order-0 blocks as MODE_INTERLEAVED
+     * @param dictionary      a trained dictionary to try, or null
+     * @return the length of the record
+     * @throws IOException             if the block cannot be encoded
+     * @throws BufferOverflowException if out might not have room for the record
+     */
+    static int encode(ByteBuffer data, ByteBuffer out, int maxCodeLength, boolean contextModeling,
+                      boolean interleaved, HuffmanDictionary dictionary) throws IOException {
+        if (out.remaining() < maxRecordLength(data.remaining())) {
+            throw new BufferOverflowException();
+        }
+        int start = out.position();
+        writeRecord(data, out, maxCodeLength, contextModeling, interleaved, dictionary);
+        return out.position() - start;
+    }
+
+    /**
+     * @param len the number of original bytes in a block
+     * @return the largest record encode writes for them, which is that of a
+     *         stored block, since every other mode is only used when smaller
+     */
+    static int maxRecordLength(int len) {
+        return BLOCK_HEADER_SIZE + len;
+    }
+
+    /**
+     * Picks the mode of a block and writes its record. Every mode's payload
+     * size is worked out before anything is written, so the record can go
+     * into an array of exactly its size or straight into the caller's
+     * buffer.
+     *
+     * @param data            buffer whose remaining bytes form the block
+     * @param out             buffer receiving the record, or null for a new array
+     * @param maxCodeLength   the longest code length the block may use
+     * @param contextModeling whether to also try MODE_ORDER1
+     * @param interleaved     whether to write order-0 blocks as MODE_INTERLEAVED
+     * @param dictionary      a trained dictionary to try, or null
+     * @return the buffer the record was written into
+     * @throws IOException if the block cannot be encoded
+     */
+    private static ByteBuffer writeRecord(ByteBuffer data, ByteBuffer out, int maxCodeLength,
+                                          boolean contextModeling, boolean interleaved,
+                                          HuffmanDictionary dictionary) throws IOException {
+        int off = data.position();
+        int len = data.remaining();
+
+        // Blocks of one repeated byte, such as zero-filled regions, need no code at all
+        if (runLength(data) == len) {
+            return startRecord(out, len, MODE_RUN, 1).put(data.get(off));
+        }
+
+        ByteHistogram histogram = ByteHistogram.of(data);
+        long[] freq = histogram.counts();
+
+        long bestOwn = bestOwnSize(histogram);
+        long dictionaryLen = Long.MAX_VALUE;
+        if (dictionary != null && dictionary.maxLength() <= maxCodeLength) {
+            dictionaryLen = 4 + (dictionary.codedBits(freq) + 7) / 8;
+            if (dictionaryLen < len && dictionaryLen <= bestOwn) {
+                return dictionaryRecord(data, out, dictionary, (int) dictionaryLen);
+            }
+        }
+
+        // Incompressible data, such as already compressed input, is stored
+        // without building a table that could not beat it; only order-1
+        // coding could, so that still gets its try. The bound may round up
+        // by one byte, hence the strict comparison.
+        if (bestOwn > len && dictionaryLen >= len && !contextModeling) {
+            return storedRecord(data, out);
+        }
+
+        int[] lengths = HuffmanCompressor.buildCodeLengths(freq, maxCodeLength);
+
+        // Size of the Huffman bitstream, to decide whether coding pays off
+        long totalBits = 0;
+        for (int s = 0; s < 256; s++) {
+            totalBits += freq[s] * lengths[s];
+        }
+
+        int tableSize = CanonicalCode.tableSize(lengths);
+        long bitBytes = (totalBits + 7) / 8;
+
+        // Interleaved streams are padded separately and preceded by their sizes
+        long[] streamBytes = null;
+        if (interleaved) {
+            streamBytes = new long[STREAMS];
+            for (int i = 0; i < len; i++) {
+                streamBytes[i % STREAMS] += lengths[data.get(off + i) & 0xFF];
+            }
+            bitBytes = 4 * (STREAMS - 1);
+            for (int k = 0; k < STREAMS; k++) {
+                streamBytes[k] = (streamBytes[k] + 7) / 8;
+                bitBytes += streamBytes[k];
+            }
+        }
+        ContextCodec order1 = contextModeling ? new ContextCodec(data, lengths, maxCodeLength) : null;
+
+        long order1Len = order1 != null ? order1.payloadSize() : Long.MAX_VALUE;
+        if (dictionaryLen < Math.min(len, Math.min(order1Len, tableSize + bitBytes))) {
+            return dictionaryRecord(data, out, dictionary, (int) dictionaryLen);
+        }
+        if (order1Len < Math.min(len, tableSize + bitBytes)) {
+            ByteBuffer record = startRecord(out, len, MODE_ORDER1, (int) order1Len);
+            order1.write(data, record, record.position());
+            return record;
+        }
+
+        if (tableSize + bitBytes >= len) {
+            return storedRecord(data, out);
+        }
+
+        // The record size is known up front, so the bits go straight into it
+        int payloadLen = tableSize + (int) bitBytes;
+        ByteBuffer record = startRecord(out, len, interleaved ? MODE_INTERLEAVED : MODE_HUFFMAN, payloadLen);
+        int pos = CanonicalCode.writeLengths(lengths, record, record.position());
+
+        // Codes are at most 32 bits, so int code and length arrays drive the encoder
+        long[] canonical = CanonicalCode.assignCodes(lengths);
+        int[] codes = new int[256];
+        for (int s = 0; s < 256; s++) {
+            codes[s] = (int) canonical[s];
+        }
+
+        if (interleaved) {
+            HuffmanCompressor.BitOutputStream[] streams = new HuffmanCompressor.BitOutputStream[STREAMS];
+            int sizes = pos;
+            pos += 4 * (STREAMS - 1);
+            for (int k = 0; k < STREAMS; k++) {
+                if (k < STREAMS - 1) {
+                    record.putInt(sizes + 4 * k, (int) streamBytes[k]);
+                }
+                streams[k] = new HuffmanCompressor.BitOutputStream(record, pos);
+                pos += (int) streamBytes[k];
+            }
+            for (int i = 0; i < len; i++) {
+                int symbol = data.get(off + i) & 0xFF;
+                streams[i % STREAMS].writeBits(codes[symbol], lengths[symbol]);
+            }
+            for (HuffmanCompressor.BitOutputStream stream : streams) {
+                stream.flush();
+            }
+            return record;
+        }
+
+        HuffmanCompressor.BitOutputStream bitOut = new HuffmanCompressor.BitOutputStream(record, pos);
+        for (int i = off; i < off + len; i++) {
+            int symbol = data.get(i) & 0xFF;
+            bitOut.writeBits(codes[symbol], lengths[symbol]);
+        }
+        bitOut.flush();
+        return record;
+    }
+
+    /**
+     * Starts a record whose payload size is known: makes room for it, either
+     * in a new array when out is null or at out's position, which is moved
+     * past the whole record, and writes the record header.
+     *
+     * @param out        buffer receiving the record, or null for a new array
+     * @param rawLen     number of original bytes in the block
+     * @param mode       the block mode
+     * @param payloadLen the size of the payload
+     * @return a big-endian buffer over the record, positioned at the payload
+     */
+    private static ByteBuffer startRecord(ByteBuffer out, int rawLen, int mode, int payloadLen) {
+        ByteBuffer record;
+        if (out == null) {
+            record = ByteBuffer.allocate(BLOCK_HEADER_SIZE + payloadLen);
+        } else {
+            record = out.duplicate().order(ByteOrder.BIG_ENDIAN);
+            out.position(out.position() + BLOCK_HEADER_SIZE + payloadLen);
+        }
+        return record.putInt(rawLen).put((byte) mode).putInt(payloadLen);
+    }
+
+    /**
+     * Writes a MODE_DICTIONARY record for a block.
+     *
+     * @param data       buffer whose remaining bytes form the block
+     * @param out        buffer receiving the record, or null for a new array
+     * @param dictionary the dictionary to code the block with
+     * @param payloadLen the size of the payload: the ID and the coded bits
+     * @return the buffer the record was written into
+     * @throws IOException if the block cannot be encoded
+     */
+    private static ByteBuffer dictionaryRecord(ByteBuffer data, ByteBuffer out, HuffmanDictionary dictionary,
+                                               int payloadLen) throws IOException {
+        ByteBuffer record = startRecord(out, data.remaining(), MODE_DICTIONARY, payloadLen).putInt(dictionary.id());
+        dictionary.encode(data, record, record.position());
+        return record;
+    }
+
+    /**
+     * Decodes a block payload into the given buffer. Both buffers may be
+     * heap buffers or mapped regions of a file.
+     *
+     * @param mode          the block mode read from the block header
+     * @param payload       buffer whose remaining bytes are the block payload
+     * @param out           buffer receiving the original bytes at its position
+     * @param rawLen        number of original bytes in the block
+     * @param maxCodeLength the code length limit recorded in the file header
+     * @param dictionary    the dictionary for MODE_DICTIONARY blocks, or null
+     * @throws IOException if the block is corrupt or needs a dictionary that was not given
+     */
+    static void decode(int mode, ByteBuffer payload, ByteBuffer out, int rawLen, int maxCodeLength,
+                       HuffmanDictionary dictionary) throws IOException {
+        if (mode == MODE_STORED) {
+            if (payload.remaining() != rawLen) {
+                throw new IOException("Corrupt stored block");
+            }
+            out.put(payload);
+            return;
+        }
+        if (mode == MODE_RUN) {
+            if (payload.remaining() != 1) {
+                throw new IOException("Corrupt run block");
+            }
+            byte value = payload.get();
+            int start = out.position();
+            if (out.hasArray()) {
+                Arrays.fill(out.array(), out.arrayOffset() + start, out.arrayOffset() + start + rawLen, value);
+            } else {
+                for (int i = 0; i < rawLen; i++) {
+                    out.put(start + i, value);
+                }
+            }
+            out.position(start + rawLen);
+            return;
+        }
+        if (mode == MODE_DICTIONARY) {
+            if (payload.remaining() < 4) {
+                throw new IOException("Corrupt dictionary block");
+            }
+            int id = payload.getInt();
+            if (dictionary == null || dictionary.id() != id) {
+                throw new IOException(String.format("Block needs dictionary %08x", id));
+            }
+            dictionary.decode(payload, out, rawLen);
+            return;
+        }
+        if (mode == MODE_ORDER1) {
+            ContextCodec.decode(payload, out, rawLen, maxCodeLength);
+            return;
+        }
+        if (mode == MODE_INTERLEAVED) {
+            decodeInterleaved(payload, out, rawLen, maxCodeLength);
+            return;
+        }
+        if (mode != MODE_HUFFMAN) {
+            throw new IOException("Unknown block mode: " + mode);
+        }
+
+        int[] lengths = CanonicalCode.readLengths(payload);
+        checkLengths(lengths, maxCodeLength);
+        HuffmanDecodeTable table = HuffmanDecodeTable.build(CanonicalCode.assignCodes(lengths), lengths);
+        HuffmanCompressor.BitInputStream bitIn = new HuffmanCompressor.BitInputStream(payload);
+
+        for (int i = 0; i < rawLen; i++) {
+            out.put((byte) table.decode(bitIn));
+        }
+    }
+
+    /**
+     * Estimates the smallest payload an order-0 coding of the counted
+     * bytes with the block's own table could have: no Huffman code is
+     * shorter than the entropy, and the table's size only depends on how
+     * many symbols are present. Rounding in the entropy can make the
+     * estimate one byte too high.
+     *
+     * @param histogram the byte counts of the block
+     * @return the estimated smallest MODE_HUFFMAN payload
+     */
+    private static long bestOwnSize(ByteHistogram histogram) {
+        return histogram.estimateCompressedSize() + CanonicalCode.tableSize(histogram.distinctSymbols());
+    }
+
+    /**
+     * Copies the remaining bytes of a buffer into a MODE_STORED record.
+     *
+     * @param data buffer whose remaining bytes form the block; its position is not changed
+     * @param out  buffer receiving the record, or null for a new array
+     * @return the buffer the record was written into
+     */
+    private static ByteBuffer storedRecord(ByteBuffer data, ByteBuffer out) {
+        int len = data.remaining();
+        ByteBuffer record = startRecord(out, len, MODE_STORED, len);
+        return record.put(record.position(), data, data.position(), len);
+    }
+
+    /**
+     * Measures how many of the remaining bytes of a buffer repeat its first
+     * byte. Eight bytes are compared at a time: each word is XORed with the
+     * first byte copied into all eight lanes, so the word is zero while the
+     * run continues and its leading zero bytes locate the first mismatch.
+     * With the Vector API, heap buffers are first compared a whole vector
+     * at a time, as described in VectorScan. On typical data the scan stops
+     * within the first word.
+     *
+     * @param data buffer whose remaining bytes are scanned; its position is not changed
+     * @return the length of the run at the start of the remaining bytes
+     */
+    static int runLength(ByteBuffer data) {
+        return runLength(data, VectorScan.ENABLED);
+    }
+
+    /**
+     * Measures the run at the start of a buffer, with or without the vector
+     * code, so the two can be compared.
+     *
+     * @param data       buffer whose remaining bytes are scanned; its position is not changed
+     * @param vectorized whether to use VectorScan; only true if it is enabled
+     * @return the length of the run at the start of the remaining bytes
+     */
+    static int runLength(ByteBuffer data, boolean vectorized) {
+        ByteBuffer view = data.duplicate(); // big-endian, whatever the order of data
+        int from = view.position();
+        int to = view.limit();
+        if (from == to) {
+            return 0;
+        }
+        long pattern = (view.get(from) & 0xFFL) * 0x0101010101010101L;
+
+        int i = from;
+        // Vectors only pay off once the run has outlasted the first word
+        if (vectorized && view.hasArray() && to - from >= 8 && view.getLong(from) == pattern) {
+            int base = view.arrayOffset();
+            i = VectorScan.Lanes.mismatch(view.array(), base + from + 8, base + to, (byte) pattern) - base;
+        }
+        for (; i + 8 <= to; i += 8) {
+            long diff = view.getLong(i) ^ pattern;
+            if (diff != 0) {
+                return i - from + (Long.numberOfLeadingZeros(diff) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (view.get(i) != (byte) pattern) {
+                break;
+            }
+        }
+        return i - from;
+    }
+
+    /**
+     * Decodes a MODE_INTERLEAVED payload. Each round of the main loop
+     * decodes one symbol from every stream; the streams have their own bit
+     * readers, so the lookups of a round do not depend on one another and
+     * the CPU can overlap them.
+     *
+     * @param payload       buffer whose remaining bytes are the block payload
+     * @param out           buffer receiving the original bytes at its position
+     * @param rawLen        number of original bytes in the block
+     * @param maxCodeLength the code length limit recorded in the file header
+     * @throws IOException if the block is corrupt
+     */
+    private static void decodeInterleaved(ByteBuffer payload, ByteBuffer out, int rawLen, int maxCodeLength)
+            throws IOException {
+        int[] lengths = CanonicalCode.readLengths(payload);
+        checkLengths(lengths, maxCodeLength);
+        HuffmanDecodeTable table = HuffmanDecodeTable.build(CanonicalCode.assignCodes(lengths), lengths);
+
+        if (payload.remaining() < 4 * (STREAMS - 1)) {
+            throw new IOException("Truncated stream sizes");
+        }
+        int[] sizes = new int[STREAMS];
+        int last = payload.remaining() - 4 * (STREAMS - 1);
+        for (int k = 0; k < STREAMS - 1; k++) {
+            sizes[k] = payload.getInt();
+            last -= sizes[k];
+            if (sizes[k] < 0 || last < 0) {
+                throw new IOException("Corrupt stream sizes");
+            }
+        }
+        sizes[STREAMS - 1] = last;
+
+        HuffmanCompressor.BitInputStream[] streams = new HuffmanCompressor.BitInputStream[STREAMS];
+        int pos = payload.position();
+        for (int k = 0; k < STREAMS; k++) {
+            streams[k] = new HuffmanCompressor.BitInputStream(payload.slice(pos, sizes[k]));
+            pos += sizes[k];
+        }
+
+        HuffmanCompressor.BitInputStream s0 = streams[0];
+        HuffmanCompressor.BitInputStream s1 = streams[1];
+        HuffmanCompressor.BitInputStream s2 = streams[2];
+        HuffmanCompressor.BitInputStream s3 = streams[3];
+        int start = out.position();
+        int i = 0;
+        if (out.hasArray()) {
+            byte[] dst = out.array();
+            int base = out.arrayOffset() + start;
+            Objects.checkFromIndexSize(base, rawLen, dst.length);
+            for (; i + STREAMS <= rawLen; i += STREAMS) {
+                dst[base + i] = (byte) table.decode(s0);
+                dst[base + i + 1] = (byte) table.decode(s1);
+                dst[base + i + 2] = (byte) table.decode(s2);
+                dst[base + i + 3] = (byte) table.decode(s3);
+            }
+        } else {
+            for (; i + STREAMS <= rawLen; i += STREAMS) {
+                out.put(start + i, (byte) table.decode(s0));
+                out.put(start + i + 1, (byte) table.decode(s1));
+                out.put(start + i + 2, (byte) table.decode(s2));
+                out.put(start + i + 3, (byte) table.decode(s3));
+            }
+        }
+        for (; i < rawLen; i++) {
+            out.put(start + i, (byte) table.decode(streams[i % STREAMS]));
+        }
+        out.position(start + rawLen);
+    }
+
+    /**
+     * Checks that a code length table read from a block stays within the
+     * limit recorded in the file header.
+     *
+     * @param lengths       the code length of each symbol
+     * @param maxCodeLength the code length limit recorded in the file header
+     * @throws IOException if any code is longer than the limit
+     */
+    static void checkLengths(int[] lengths, int maxCodeLength) throws IOException {
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > maxCodeLength) {
+                throw new IOException("Code length " + lengths[s] + " exceeds the limit of " + maxCodeLength);
+            }
+        }
+    }
+}
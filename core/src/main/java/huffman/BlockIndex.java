@@ -0,0 +1,311 @@
+package huffman;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * BlockIndex records where every block of a HUF4 container starts, both
+ * in the compressed file and in the original data. With the index, any
+ * block can be read and decoded on its own, which is what allows blocks
+ * to be decompressed on several threads at once.
+ *
+ * The compressor stores the index in a footer after the end-of-blocks
+ * marker, so a reader can find any block without touching the others:
+ * - The number of blocks (int)
+ * - For each block, the file position of its record and the offset of
+ *   its first byte in the original data (two longs)
+ * - The file position where the footer starts (long)
+ * - A magic string "HIDX"
+ * Each block start is a sync point where decoding can begin. For files
+ * without a footer the index is rebuilt by walking the block headers,
+ * reading only the fixed-size header of each block. Streams written by
+ * HuffmanOutputStream have no footer and record an unknown original
+ * length, which is then taken from the blocks.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class BlockIndex {
+
+    /** Size of the HUF4 file header: magic, original length, block size and code length limit. */
+    static final int FILE_HEADER_SIZE = 17;
+
+    /** Size of the older HUF3 file header, which has no code length limit. */
+    private static final int HUF3_HEADER_SIZE = 16;
+
+    /** Original length recorded by HuffmanOutputStream, which cannot know it up front. */
+    static final long UNKNOWN_LENGTH = -1;
+
+    /** Size of the fixed trailer at the very end of an indexed file. */
+    private static final int TRAILER_SIZE = 12;
+
+    long originalLen;
+    final int maxBlockSize;
+    final int maxCodeLength;
+    private final int headerSize;
+    private int count;
+    private long[] positions = new long[16];
+    private long[] rawOffsets = new long[16];
+
+    /**
+     * Creates an empty index, to which the compressor adds blocks as it
+     * writes them.
+     *
+     * @param originalLen  the original length of the data
+     * @param maxBlockSize the block size used by the compressor
+     */
+    BlockIndex(long originalLen, int maxBlockSize) {
+        this(originalLen, maxBlockSize, CanonicalCode.MAX_CODE_LENGTH, FILE_HEADER_SIZE);
+    }
+
+    private BlockIndex(long originalLen, int maxBlockSize, int maxCodeLength, int headerSize) {
+        this.originalLen = originalLen;
+        this.maxBlockSize = maxBlockSize;
+        this.maxCodeLength = maxCodeLength;
+        this.headerSize = headerSize;
+    }
+
+    /**
+     * Reads the index of a HUF4 or HUF3 container, from its footer if it
+     * has one and otherwise by walking the header of each block.
+     *
+     * @param ch channel over the compressed file
+     * @return the block index of the file
+     * @throws IOException if the file is not a valid block container
+     */
+    static BlockIndex read(FileChannel ch) throws IOException {
+        ByteBuffer header = readFully(ch, 0, HUF3_HEADER_SIZE);
+        byte[] magic = new byte[4];
+        header.get(magic);
+        String format = new String(magic);
+        if (!format.equals("HUF4") && !format.equals("HUF3")) {
+            throw new IOException("Not a Huffman block container");
+        }
+
+        long originalLen = header.getLong();
+        int blockSize = header.getInt();
+        BlockIndex index;
+        if (format.equals("HUF4")) {
+            int maxCodeLength = readFully(ch, HUF3_HEADER_SIZE, 1).get() & 0xFF;
+            if (maxCodeLength < 1 || maxCodeLength > CanonicalCode.MAX_CODE_LENGTH) {
+                throw new IOException("Invalid code length limit: " + maxCodeLength);
+            }
+            index = new BlockIndex(originalLen, blockSize, maxCodeLength, FILE_HEADER_SIZE);
+        } else {
+            index = new BlockIndex(originalLen, blockSize, CanonicalCode.MAX_CODE_LENGTH, HUF3_HEADER_SIZE);
+        }
+
+        long size = ch.size();
+        if (size >= index.headerSize + 4 + TRAILER_SIZE) {
+            ByteBuffer trailer = readFully(ch, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerPos = trailer.getLong();
+            trailer.get(magic);
+            if (new String(magic).equals("HIDX")) {
+                index.readFooter(ch, footerPos, size);
+                return index;
+            }
+        }
+        index.scan(ch);
+        return index;
+    }
+
+    /**
+     * Loads the blocks of the index from the footer of the file.
+     *
+     * @param ch        channel over the compressed file
+     * @param footerPos file position where the footer starts
+     * @param size      size of the file
+     * @throws IOException if the footer is corrupt
+     */
+    private void readFooter(FileChannel ch, long footerPos, long size) throws IOException {
+        if (footerPos < headerSize || footerPos > size - TRAILER_SIZE - 4) {
+            throw new IOException("Corrupt block index");
+        }
+        int blocks = readFully(ch, footerPos, 4).getInt();
+        if (blocks < 0 || (long) blocks * 16 != size - TRAILER_SIZE - 4 - footerPos) {
+            throw new IOException("Corrupt block index");
+        }
+
+        ByteBuffer entries = readFully(ch, footerPos + 4, blocks * 16);
+        positions = new long[blocks + 1];
+        rawOffsets = new long[blocks + 1];
+        for (int i = 0; i < blocks; i++) {
+            positions[i] = entries.getLong();
+            rawOffsets[i] = entries.getLong();
+        }
+        rawOffsets[blocks] = originalLen;
+        count = blocks;
+
+        // Blocks must start at 0 and each hold between 1 and maxBlockSize bytes
+        if (blocks == 0 ? originalLen != 0 : rawOffsets[0] != 0) {
+            throw new IOException("Corrupt block index");
+        }
+        for (int i = 0; i < blocks; i++) {
+            long len = rawOffsets[i + 1] - rawOffsets[i];
+            if (len <= 0 || len > maxBlockSize) {
+                throw new IOException("Corrupt block index");
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the blocks of the index by walking the block headers.
+     *
+     * @param ch channel over the compressed file
+     * @throws IOException if a block header is corrupt
+     */
+    private void scan(FileChannel ch) throws IOException {
+        long pos = headerSize;
+        long rawOffset = 0;
+
+        while (true) {
+            int rawLen = readFully(ch, pos, 4).getInt();
+            if (rawLen == 0) {
+                break;
+            }
+
+            int payloadLen = readFully(ch, pos + 5, 4).getInt();
+            if (rawLen < 0 || rawLen > maxBlockSize || payloadLen < 0) {
+                throw new IOException("Corrupt block header");
+            }
+
+            add(pos, rawOffset);
+            pos += BlockCodec.BLOCK_HEADER_SIZE + payloadLen;
+            rawOffset += rawLen;
+        }
+
+        if (originalLen == UNKNOWN_LENGTH) {
+            originalLen = rawOffset;
+        } else if (rawOffset != originalLen) {
+            throw new IOException("Corrupt file: expected " + originalLen + " bytes but blocks hold " + rawOffset);
+        }
+        rawOffsets[count] = rawOffset;
+    }
+
+    /**
+     * Writes the index as a footer, ending with the trailer that lets
+     * readers find it from the end of the file.
+     *
+     * @param out       the stream to write to
+     * @param footerPos file position at which the footer is being written
+     * @throws IOException if an I/O error occurs
+     */
+    void writeFooter(DataOutput out, long footerPos) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(positions[i]);
+            out.writeLong(rawOffsets[i]);
+        }
+        out.writeLong(footerPos);
+        out.writeBytes("HIDX");
+    }
+
+    /**
+     * Appends a block to the index.
+     *
+     * @param position  file position of the block's header
+     * @param rawOffset offset of the block's first byte in the original data
+     */
+    void add(long position, long rawOffset) {
+        if (count + 1 >= positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+            rawOffsets = Arrays.copyOf(rawOffsets, rawOffsets.length * 2);
+        }
+        positions[count] = position;
+        rawOffsets[count] = rawOffset;
+        count++;
+    }
+
+    /**
+     * @return the number of blocks in the file
+     */
+    int blockCount() {
+        return count;
+    }
+
+    /**
+     * Finds the block holding a given byte of the original data.
+     *
+     * @param offset offset in the original data, below originalLen
+     * @return index of the block containing that byte
+     */
+    int blockAt(long offset) {
+        int i = Arrays.binarySearch(rawOffsets, 0, count, offset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * @param block index of the block
+     * @return the offset of the block's first byte in the original data
+     */
+    long rawOffset(int block) {
+        return rawOffsets[block];
+    }
+
+    /**
+     * @param block index of the block
+     * @return the number of original bytes in the block
+     */
+    int rawLength(int block) {
+        return (int) (rawOffsets[block + 1] - rawOffsets[block]);
+    }
+
+    /**
+     * Reads and decodes a single block of the file. The payload is either
+     * read into a heap buffer or mapped straight from the file.
+     *
+     * @param ch         channel over the compressed file
+     * @param block      index of the block to decode
+     * @param out        buffer receiving the block's original bytes at its position
+     * @param mapPayload whether to map the payload instead of reading it
+     * @param dictionary the dictionary the file was compressed with, or null
+     * @throws IOException if the block is corrupt or cannot be read
+     */
+    void decodeBlock(FileChannel ch, int block, ByteBuffer out, boolean mapPayload, HuffmanDictionary dictionary)
+            throws IOException {
+        // Positions from a footer are not checked when it is loaded, so check them here
+        long size = ch.size();
+        long position = positions[block];
+        if (position < headerSize || position > size - BlockCodec.BLOCK_HEADER_SIZE) {
+            throw new IOException("Corrupt block index");
+        }
+        ByteBuffer header = readFully(ch, position, BlockCodec.BLOCK_HEADER_SIZE);
+        int rawLen = header.getInt();
+        int mode = header.get() & 0xFF;
+        int payloadLen = header.getInt();
+
+        // Compared without adding, so a huge length cannot overflow past the check
+        long payloadPos = position + BlockCodec.BLOCK_HEADER_SIZE;
+        if (rawLen != rawLength(block) || payloadLen < 0 || payloadLen > size - payloadPos) {
+            throw new IOException("Corrupt block index");
+        }
+        ByteBuffer payload = mapPayload
+                ? ch.map(FileChannel.MapMode.READ_ONLY, payloadPos, payloadLen)
+                : readFully(ch, payloadPos, payloadLen);
+        BlockCodec.decode(mode, payload, out, rawLength(block), maxCodeLength, dictionary);
+    }
+
+    /**
+     * Reads exactly len bytes at the given position of a channel. Positional
+     * reads do not move the channel's own position, so several threads can
+     * read from the same channel at once.
+     *
+     * @param ch       the channel to read from
+     * @param position file position of the first byte
+     * @param len      number of bytes to read
+     * @return a heap buffer holding the bytes, positioned at 0
+     * @throws IOException if the file ends before len bytes are read
+     */
+    static ByteBuffer readFully(FileChannel ch, long position, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buf.flip();
+    }
+}
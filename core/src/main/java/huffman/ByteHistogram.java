@@ -0,0 +1,260 @@
+package huffman;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ByteHistogram counts how often each of the 256 byte values occurs in a
+ * piece of data, using primitive 64-bit counters. It is the frequency
+ * table behind every Huffman code the compressor builds, and it can also
+ * be used on its own as a quick probe of how compressible some data is.
+ *
+ * Counting one byte at a time into a single table makes each increment
+ * wait for the previous one whenever two neighbouring bytes are equal,
+ * which is common in real data. The counting loop therefore spreads
+ * neighbouring bytes over four interleaved sub-tables, which are summed
+ * at the end. When the Vector API is available, heap data is also looked
+ * at a vector at a time, so stretches of one repeated byte are counted in
+ * one step, as described in VectorScan. Large inputs can also be split
+ * across a ForkJoinPool, with each worker filling its own histogram before
+ * they are merged.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class ByteHistogram {
+
+    /** Inputs smaller than this are counted on a single thread. */
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    private final long[] counts = new long[256];
+    private long total;
+
+    /**
+     * Creates an empty histogram.
+     */
+    public ByteHistogram() {
+    }
+
+    /**
+     * Counts the remaining bytes of a buffer.
+     *
+     * @param data the buffer to count; its position is not changed
+     * @return the histogram of the buffer's remaining bytes
+     */
+    public static ByteHistogram of(ByteBuffer data) {
+        return of(data, VectorScan.ENABLED);
+    }
+
+    /**
+     * Counts the remaining bytes of a buffer, with or without the vector
+     * code, so the two can be compared.
+     *
+     * @param data       the buffer to count; its position is not changed
+     * @param vectorized whether to use VectorScan; only true if it is enabled
+     * @return the histogram of the buffer's remaining bytes
+     */
+    static ByteHistogram of(ByteBuffer data, boolean vectorized) {
+        ByteHistogram histogram = new ByteHistogram();
+        histogram.add(data, data.position(), data.limit(), vectorized);
+        return histogram;
+    }
+
+    /**
+     * Counts a range of a byte array.
+     *
+     * @param data the array to count
+     * @param off  offset of the first byte to count
+     * @param len  number of bytes to count
+     * @return the histogram of the range
+     */
+    public static ByteHistogram of(byte[] data, int off, int len) {
+        return of(ByteBuffer.wrap(data, off, len));
+    }
+
+    /**
+     * Counts the remaining bytes of a buffer on the common ForkJoinPool.
+     *
+     * @param data the buffer to count; its position is not changed
+     * @return the histogram of the buffer's remaining bytes
+     */
+    public static ByteHistogram parallel(ByteBuffer data) {
+        return parallel(data, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the remaining bytes of a buffer on the given pool. The buffer
+     * is split into ranges that are counted into separate histograms by
+     * different workers and then merged.
+     *
+     * @param data the buffer to count; its position is not changed
+     * @param pool the pool to run the counting tasks on
+     * @return the histogram of the buffer's remaining bytes
+     */
+    public static ByteHistogram parallel(ByteBuffer data, ForkJoinPool pool) {
+        return pool.invoke(new CountTask(data, data.position(), data.limit()));
+    }
+
+    /**
+     * Adds the bytes in [from, to) of a buffer to this histogram, using
+     * absolute reads so the buffer can be shared between threads.
+     *
+     * @param data       the buffer to count
+     * @param from       index of the first byte to count
+     * @param to         index after the last byte to count
+     * @param vectorized whether to use VectorScan; only true if it is enabled
+     */
+    private void add(ByteBuffer data, int from, int to, boolean vectorized) {
+        long[] c = new long[4 * 256];
+        int i = from;
+
+        if (data.hasArray()) {
+            // Heap buffers: index the backing array, one sub-table per byte lane
+            byte[] a = data.array();
+            int base = data.arrayOffset();
+            if (vectorized) {
+                i = VectorScan.Lanes.count(a, base + i, base + to, c) - base;
+            }
+            for (; i + 4 <= to; i += 4) {
+                c[a[base + i] & 0xFF]++;
+                c[256 + (a[base + i + 1] & 0xFF)]++;
+                c[512 + (a[base + i + 2] & 0xFF)]++;
+                c[768 + (a[base + i + 3] & 0xFF)]++;
+            }
+        } else {
+            // Direct and mapped buffers: read eight bytes at a time
+            for (; i + 8 <= to; i += 8) {
+                long w = data.getLong(i);
+                c[(int) w & 0xFF]++;
+                c[256 + ((int) (w >>> 8) & 0xFF)]++;
+                c[512 + ((int) (w >>> 16) & 0xFF)]++;
+                c[768 + ((int) (w >>> 24) & 0xFF)]++;
+                c[(int) (w >>> 32) & 0xFF]++;
+                c[256 + ((int) (w >>> 40) & 0xFF)]++;
+                c[512 + ((int) (w >>> 48) & 0xFF)]++;
+                c[768 + ((int) (w >>> 56) & 0xFF)]++;
+            }
+        }
+        for (; i < to; i++) {
+            c[data.get(i) & 0xFF]++;
+        }
+
+        for (int s = 0; s < 256; s++) {
+            counts[s] += c[s] + c[256 + s] + c[512 + s] + c[768 + s];
+        }
+        total += to - from;
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     *
+     * @param other the histogram to merge in
+     */
+    public void merge(ByteHistogram other) {
+        for (int s = 0; s < 256; s++) {
+            counts[s] += other.counts[s];
+        }
+        total += other.total;
+    }
+
+    /**
+     * @param symbol a byte value, 0 to 255
+     * @return how many times the byte value was counted
+     */
+    public long count(int symbol) {
+        return counts[symbol];
+    }
+
+    /**
+     * @return a copy of all 256 counts, indexed by unsigned byte value
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    /**
+     * @return the total number of bytes counted
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return the number of distinct byte values that were counted
+     */
+    public int distinctSymbols() {
+        int distinct = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Computes the Shannon entropy of the counted bytes, which is the
+     * smallest average code length any order-0 coder can reach.
+     *
+     * @return the entropy in bits per byte, between 0 and 8
+     */
+    public double entropy() {
+        double bits = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                double p = (double) count / total;
+                bits -= p * Math.log(p);
+            }
+        }
+        return bits / Math.log(2);
+    }
+
+    /**
+     * Estimates how many bytes the counted data would compress to, based on
+     * its entropy. Huffman coding stays within one bit per byte of this
+     * bound, so a result close to total() means compression will not help.
+     *
+     * @return the estimated compressed size in bytes, excluding headers
+     */
+    public long estimateCompressedSize() {
+        return (long) Math.ceil(entropy() * total / 8);
+    }
+
+    /**
+     * CountTask counts a range of a buffer, splitting it in half and
+     * counting the halves in parallel while it is above the threshold.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    private static final class CountTask extends RecursiveTask<ByteHistogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer data;
+        private final int from;
+        private final int to;
+
+        CountTask(ByteBuffer data, int from, int to) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ByteHistogram compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                ByteHistogram histogram = new ByteHistogram();
+                histogram.add(data, from, to, VectorScan.ENABLED);
+                return histogram;
+            }
+
+            int mid = from + (to - from) / 2;
+            CountTask right = new CountTask(data, mid, to);
+            right.fork();
+            ByteHistogram left = new CountTask(data, from, mid).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package huffman;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * CanonicalCode assigns canonical Huffman codes from code lengths alone.
+ * Symbols are ordered by code length and then by byte value, and each one
+ * receives the next available code of its length. Because the codes follow
+ * from the lengths, a file only has to store the length of each symbol and
+ * the decoder can derive the exact same codes without rebuilding a tree.
+ *
+ * The stored code length table starts with one byte. If it is below
+ * SPARSE_LIMIT it is the number of present symbols, and that many
+ * (symbol, length) byte pairs follow. Otherwise it is 0xFF and is followed by:
+ * - A 256-bit (32 byte) bitmap marking which symbols are present
+ * - One byte per present symbol holding its code length, in symbol order
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class CanonicalCode {
+
+    /** Longest code length the encoder will produce for canonical codes. */
+    static final int MAX_CODE_LENGTH = 32;
+
+    /** Symbol counts below this are stored as pairs, which is smaller than the bitmap. */
+    private static final int SPARSE_LIMIT = 32;
+
+    /** Largest stored table: the marker, the bitmap and a length for every symbol. */
+    private static final int MAX_TABLE_SIZE = 1 + 32 + 256;
+
+    private CanonicalCode() {
+    }
+
+    /**
+     * Assigns canonical codes to the given code lengths.
+     *
+     * @param lengths the code length of each symbol, 0 for absent symbols
+     * @return the code of each symbol, right-aligned in the low lengths[s] bits
+     * @throws IOException if the lengths are out of range or over-subscribe the code space
+     */
+    static long[] assignCodes(int[] lengths) throws IOException {
+        long[] codes = new long[256];
+        assignCodes(lengths, codes, new long[MAX_CODE_LENGTH + 1]);
+        return codes;
+    }
+
+    /**
+     * Assigns canonical codes into a caller-supplied array, without
+     * allocating, so a codec that keeps its arrays can assign codes for
+     * every payload.
+     *
+     * @param lengths  the code length of each symbol, 0 for absent symbols
+     * @param codes    receives the code of each symbol, right-aligned, 0 for absent symbols
+     * @param nextCode scratch space of at least MAX_CODE_LENGTH + 1 entries
+     * @throws IOException if the lengths are out of range or over-subscribe the code space
+     */
+    static void assignCodes(int[] lengths, long[] codes, long[] nextCode) throws IOException {
+        Arrays.fill(nextCode, 0, MAX_CODE_LENGTH + 1, 0);
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] < 0 || lengths[s] > MAX_CODE_LENGTH) {
+                throw new IOException("Invalid code length: " + lengths[s]);
+            }
+            nextCode[lengths[s]]++;
+        }
+
+        // Turn the count of each length into its first code, checking the codes still fit
+        long code = 0;
+        for (int len = 1; len <= MAX_CODE_LENGTH; len++) {
+            code <<= 1;
+            long count = nextCode[len];
+            nextCode[len] = code;
+            code += count;
+            if (code > (1L << len)) {
+                throw new IOException("Invalid code lengths");
+            }
+        }
+
+        for (int s = 0; s < 256; s++) {
+            codes[s] = lengths[s] > 0 ? nextCode[lengths[s]]++ : 0;
+        }
+    }
+
+    /**
+     * Writes a code length table, either as a list of (symbol, length) pairs
+     * or as a presence bitmap followed by the length of each present symbol.
+     *
+     * @param out     the stream to write to
+     * @param lengths the code length of each symbol, 0 for absent symbols
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeLengths(DataOutput out, int[] lengths) throws IOException {
+        byte[] table = new byte[tableSize(lengths)];
+        writeLengths(lengths, ByteBuffer.wrap(table), 0);
+        out.write(table);
+    }
+
+    /**
+     * Writes a code length table straight into a buffer, heap or direct,
+     * without allocating. The other forms of writeLengths and readLengths
+     * all go through this method and its readLengths counterpart, so the
+     * table format is only spelled out here.
+     *
+     * @param lengths the code length of each symbol, 0 for absent symbols
+     * @param dst     the buffer to write to, with room for tableSize(lengths) bytes
+     * @param off     index in dst at which the table starts; dst's position is not changed
+     * @return the index just after the table
+     */
+    static int writeLengths(int[] lengths, ByteBuffer dst, int off) {
+        int count = 0;
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > 0) {
+                count++;
+            }
+        }
+
+        if (count < SPARSE_LIMIT) {
+            dst.put(off++, (byte) count);
+            for (int s = 0; s < 256; s++) {
+                if (lengths[s] > 0) {
+                    dst.put(off++, (byte) s);
+                    dst.put(off++, (byte) lengths[s]);
+                }
+            }
+            return off;
+        }
+
+        dst.put(off++, (byte) 0xFF);
+        for (int i = 0; i < 256; i += 8) {
+            int mask = 0;
+            for (int k = 0; k < 8; k++) {
+                if (lengths[i + k] > 0) {
+                    mask |= 0x80 >> k;
+                }
+            }
+            dst.put(off++, (byte) mask);
+        }
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > 0) {
+                dst.put(off++, (byte) lengths[s]);
+            }
+        }
+        return off;
+    }
+
+    /**
+     * Works out how many bytes writeLengths will use for a table.
+     *
+     * @param lengths the code length of each symbol, 0 for absent symbols
+     * @return the size of the stored table in bytes
+     */
+    static int tableSize(int[] lengths) {
+        int count = 0;
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > 0) {
+                count++;
+            }
+        }
+        return tableSize(count);
+    }
+
+    /**
+     * Works out how many bytes writeLengths will use for a table with a
+     * given number of present symbols.
+     *
+     * @param count the number of symbols with a code
+     * @return the size of the stored table in bytes
+     */
+    static int tableSize(int count) {
+        return count < SPARSE_LIMIT ? 1 + 2 * count : 1 + 32 + count;
+    }
+
+    /**
+     * Reads a code length table written by writeLengths. The first byte
+     * and, for a bitmap, the bitmap tell how long the table is, so exactly
+     * the table's bytes are read before it is parsed.
+     *
+     * @param in the stream to read from
+     * @return the code length of each symbol, 0 for absent symbols
+     * @throws IOException if the table is invalid or an I/O error occurs
+     */
+    static int[] readLengths(DataInput in) throws IOException {
+        byte[] table = new byte[MAX_TABLE_SIZE];
+        table[0] = in.readByte();
+        int count = table[0] & 0xFF;
+        int size = 1;
+        if (count < SPARSE_LIMIT) {
+            size += 2 * count;
+            in.readFully(table, 1, size - 1);
+        } else if (count == 0xFF) {
+            in.readFully(table, 1, 32);
+            int present = 0;
+            for (int i = 1; i <= 32; i++) {
+                present += Integer.bitCount(table[i] & 0xFF);
+            }
+            size = 1 + 32 + present;
+            in.readFully(table, 33, present);
+        }
+
+        int[] lengths = new int[256];
+        readLengths(table, 0, size, lengths);
+        return lengths;
+    }
+
+    /**
+     * Reads a code length table from an array into a caller-supplied
+     * array, without allocating.
+     *
+     * @param src     the array to read from
+     * @param off     offset in src at which the table starts
+     * @param end     offset in src at which the readable bytes end
+     * @param lengths receives the code length of each symbol, 0 for absent symbols
+     * @return the offset just after the table
+     * @throws IOException if the table is invalid or runs past end
+     */
+    static int readLengths(byte[] src, int off, int end, int[] lengths) throws IOException {
+        Arrays.fill(lengths, 0);
+        if (off >= end) {
+            throw new IOException("Truncated code length table");
+        }
+        int count = src[off++] & 0xFF;
+        if (count < SPARSE_LIMIT) {
+            if (end - off < 2 * count) {
+                throw new IOException("Truncated code length table");
+            }
+            for (int i = 0; i < count; i++) {
+                int symbol = src[off++] & 0xFF;
+                lengths[symbol] = src[off++] & 0xFF;
+            }
+            return off;
+        }
+        if (count != 0xFF) {
+            throw new IOException("Invalid code length table");
+        }
+
+        if (end - off < 32) {
+            throw new IOException("Truncated code length table");
+        }
+        int bitmap = off;
+        off += 32;
+        for (int s = 0; s < 256; s++) {
+            if ((src[bitmap + (s >> 3)] & (0x80 >> (s & 7))) != 0) {
+                if (off == end) {
+                    throw new IOException("Truncated code length table");
+                }
+                lengths[s] = src[off++] & 0xFF;
+            }
+        }
+        return off;
+    }
+
+    /**
+     * Reads a code length table written by writeLengths from a buffer,
+     * advancing the buffer's position past the table. The buffer may be
+     * heap, direct or mapped, so the bytes that can hold the table are
+     * copied out and parsed as an array.
+     *
+     * @param in the buffer to read from
+     * @return the code length of each symbol, 0 for absent symbols
+     * @throws IOException if the table is invalid or the buffer ends inside it
+     */
+    static int[] readLengths(ByteBuffer in) throws IOException {
+        byte[] table = new byte[Math.min(in.remaining(), MAX_TABLE_SIZE)];
+        in.get(in.position(), table);
+
+        int[] lengths = new int[256];
+        int size = readLengths(table, 0, table.length, lengths);
+        in.position(in.position() + size);
+        return lengths;
+    }
+}
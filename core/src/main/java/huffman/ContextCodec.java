@@ -0,0 +1,204 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * ContextCodec codes a block with order-1 context modeling: the code used
+ * for a byte depends on the byte before it. In text and log data the
+ * previous byte says a lot about the next one, for example a space is
+ * mostly followed by letters, so per-context codes are much shorter than
+ * one code for the whole block.
+ *
+ * A separate table for all 256 contexts would often cost more than it
+ * saves, so the encoder only gives a context its own code table when the
+ * bits it saves pay for storing that table. All other contexts are
+ * clustered together and share one table built from their combined counts.
+ * The first byte of a block is coded in context 0.
+ *
+ * The payload of an order-1 block consists of:
+ * - A 256-bit (32 byte) bitmap marking the contexts with their own table
+ * - The code length table of each of those contexts, in context order
+ * - The code length table shared by the remaining contexts
+ * - The encoded bits
+ * Code length tables use the format described in CanonicalCode.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class ContextCodec {
+
+    private final int[][] lengths = new int[256][];
+    private final int[][] codes = new int[256][];
+    private final byte[] tables;
+    private final long totalBits;
+
+    /**
+     * Plans the order-1 coding of a block: counts every (previous byte,
+     * byte) pair, decides which contexts get their own table and builds
+     * the codes.
+     *
+     * @param data          buffer whose remaining bytes form the block
+     * @param order0Lengths the order-0 code lengths of the block
+     * @param maxCodeLength the longest code length the block may use
+     * @throws IOException if the codes cannot be built
+     */
+    ContextCodec(ByteBuffer data, int[] order0Lengths, int maxCodeLength) throws IOException {
+        int[] pairs = new int[256 * 256];
+        int prev = 0;
+        for (int i = data.position(); i < data.limit(); i++) {
+            int symbol = data.get(i) & 0xFF;
+            pairs[prev << 8 | symbol]++;
+            prev = symbol;
+        }
+
+        // A context gets its own table if that beats coding it with the order-0 code
+        byte[] bitmap = new byte[32];
+        long[] shared = new long[256];
+        long[] context = new long[256];
+        boolean anyShared = false;
+        long bits = 0;
+        for (int c = 0; c < 256; c++) {
+            long sharedBits = 0;
+            long n = 0;
+            for (int s = 0; s < 256; s++) {
+                context[s] = pairs[c << 8 | s];
+                sharedBits += context[s] * order0Lengths[s];
+                n += context[s];
+            }
+            if (n == 0) {
+                continue;
+            }
+
+            int[] own = HuffmanCompressor.buildCodeLengths(context, maxCodeLength);
+            long ownBits = 8L * CanonicalCode.tableSize(own);
+            for (int s = 0; s < 256; s++) {
+                ownBits += context[s] * own[s];
+            }
+            if (ownBits < sharedBits) {
+                bitmap[c >> 3] |= (byte) (0x80 >> (c & 7));
+                lengths[c] = own;
+                bits += ownBits - 8L * CanonicalCode.tableSize(own);
+            } else {
+                for (int s = 0; s < 256; s++) {
+                    shared[s] += context[s];
+                }
+                anyShared = true;
+            }
+        }
+
+        int[] sharedLengths = anyShared ? HuffmanCompressor.buildCodeLengths(shared, maxCodeLength) : new int[256];
+        int[] sharedCodes = toInts(CanonicalCode.assignCodes(sharedLengths));
+        for (int s = 0; s < 256; s++) {
+            bits += shared[s] * sharedLengths[s];
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.write(bitmap);
+        for (int c = 0; c < 256; c++) {
+            if (lengths[c] != null) {
+                CanonicalCode.writeLengths(out, lengths[c]);
+                codes[c] = toInts(CanonicalCode.assignCodes(lengths[c]));
+            } else {
+                lengths[c] = sharedLengths;
+                codes[c] = sharedCodes;
+            }
+        }
+        CanonicalCode.writeLengths(out, sharedLengths);
+
+        this.tables = header.toByteArray();
+        this.totalBits = bits;
+    }
+
+    /**
+     * @return the size of the order-1 payload for the planned block, in bytes
+     */
+    long payloadSize() {
+        return tables.length + (totalBits + 7) / 8;
+    }
+
+    /**
+     * Writes the order-1 payload of the planned block.
+     *
+     * @param data   buffer whose remaining bytes form the block
+     * @param record the buffer receiving the payload; its position is not changed
+     * @param off    index in record at which the payload starts
+     * @throws IOException if the payload does not fit in the record
+     */
+    void write(ByteBuffer data, ByteBuffer record, int off) throws IOException {
+        record.put(off, tables);
+        HuffmanCompressor.BitOutputStream bitOut =
+                new HuffmanCompressor.BitOutputStream(record, off + tables.length);
+        int prev = 0;
+        for (int i = data.position(); i < data.limit(); i++) {
+            int symbol = data.get(i) & 0xFF;
+            bitOut.writeBits(codes[prev][symbol], lengths[prev][symbol]);
+            prev = symbol;
+        }
+        bitOut.flush();
+    }
+
+    /**
+     * Decodes an order-1 payload into the given buffer.
+     *
+     * @param payload       buffer whose remaining bytes are the block payload
+     * @param out           buffer receiving the original bytes at its position
+     * @param rawLen        number of original bytes in the block
+     * @param maxCodeLength the code length limit recorded in the file header
+     * @throws IOException if the block is corrupt
+     */
+    static void decode(ByteBuffer payload, ByteBuffer out, int rawLen, int maxCodeLength) throws IOException {
+        if (payload.remaining() < 32) {
+            throw new IOException("Truncated context bitmap");
+        }
+        byte[] bitmap = new byte[32];
+        payload.get(bitmap);
+
+        HuffmanDecodeTable[] tables = new HuffmanDecodeTable[256];
+        for (int c = 0; c < 256; c++) {
+            if ((bitmap[c >> 3] & (0x80 >> (c & 7))) != 0) {
+                tables[c] = readTable(payload, maxCodeLength);
+            }
+        }
+        HuffmanDecodeTable shared = readTable(payload, maxCodeLength);
+        for (int c = 0; c < 256; c++) {
+            if (tables[c] == null) {
+                tables[c] = shared;
+            }
+        }
+
+        HuffmanCompressor.BitInputStream bitIn = new HuffmanCompressor.BitInputStream(payload);
+        int prev = 0;
+        for (int i = 0; i < rawLen; i++) {
+            prev = tables[prev].decode(bitIn);
+            out.put((byte) prev);
+        }
+    }
+
+    /**
+     * Reads one code length table and builds its decoding table.
+     *
+     * @param payload       the buffer to read from
+     * @param maxCodeLength the code length limit recorded in the file header
+     * @return the decoding table
+     * @throws IOException if the table is corrupt
+     */
+    private static HuffmanDecodeTable readTable(ByteBuffer payload, int maxCodeLength) throws IOException {
+        int[] lengths = CanonicalCode.readLengths(payload);
+        BlockCodec.checkLengths(lengths, maxCodeLength);
+        return HuffmanDecodeTable.build(CanonicalCode.assignCodes(lengths), lengths);
+    }
+
+    /**
+     * @param canonical codes of at most 32 bits, as returned by assignCodes
+     * @return the same codes as ints
+     */
+    private static int[] toInts(long[] canonical) {
+        int[] ints = new int[256];
+        for (int s = 0; s < 256; s++) {
+            ints[s] = (int) canonical[s];
+        }
+        return ints;
+    }
+}
@@ -0,0 +1,321 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * HuffmanArchive packs many files into one archive, each compressed as its
+ * own member, and can pull single members back out without decoding the
+ * rest. A central directory at the end of the archive lists every member,
+ * so listing an archive reads only the directory, and extracting a member
+ * seeks straight to its first block.
+ *
+ * An archive consists of:
+ * - A magic string "HARC" to identify the format
+ * - The block size used by the compressor (int)
+ * - The longest code length any block may use (byte)
+ * - The members, one after another, each being the block records of one
+ *   file followed by an int 0, exactly as in a HUF4 file
+ * - The central directory: the number of members (int), then for each
+ *   member its name (modified UTF-8, as written by DataOutput.writeUTF),
+ *   its original size (long), the file position of its first record
+ *   (long), its compressed size including the end marker (long) and the
+ *   CRC-32 of its original bytes (int)
+ * - The file position where the directory starts (long)
+ * - A magic string "HDIR"
+ * Member names are paths relative to the directory the archive was
+ * created from, with '/' as the separator. Members are compressed with the
+ * settings of the compressor passed to the constructor, and that
+ * compressor, including its dictionary, must also be used to extract them.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public class HuffmanArchive {
+
+    /** Size of the archive header: magic, block size and code length limit. */
+    static final int ARCHIVE_HEADER_SIZE = 9;
+
+    /** Size of the fixed trailer at the very end of an archive. */
+    private static final int TRAILER_SIZE = 12;
+
+    private final HuffmanCompressor compressor;
+
+    /**
+     * Creates an archiver that compresses and extracts members with the
+     * settings of the given compressor.
+     *
+     * @param compressor the configured compressor to code each member with
+     */
+    public HuffmanArchive(HuffmanCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Creates an archive from a list of files under a common root. Each
+     * member is named by its path relative to the root.
+     *
+     * @param archive the archive file to write
+     * @param root    the directory member names are relative to
+     * @param files   the files to add, all inside root
+     * @throws IOException              if a file cannot be read or the archive cannot be written
+     * @throws IllegalArgumentException if a file is outside root or two files have the same name
+     */
+    public void create(Path archive, Path root, List<Path> files) throws IOException {
+        List<Entry> entries = new ArrayList<>(files.size());
+        Set<String> names = new HashSet<>();
+        for (Path file : files) {
+            String name = memberName(root, file);
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("Duplicate member name: " + name);
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(archive), HuffmanCompressor.DEFAULT_BUFFER_SIZE))) {
+            out.writeBytes("HARC");
+            out.writeInt(compressor.blockSize());
+            out.writeByte(compressor.maxCodeLength());
+
+            long position = ARCHIVE_HEADER_SIZE;
+            for (Path file : files) {
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    CRC32 crc = new CRC32();
+                    BlockIndex index = new BlockIndex(size, compressor.blockSize());
+                    long end = compressor.writeBlocks(in, out, position, index, crc);
+                    entries.add(new Entry(memberName(root, file), size, position, end - position,
+                            (int) crc.getValue()));
+                    position = end;
+                }
+            }
+
+            // Central directory, found through the trailer at the end
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.name);
+                out.writeLong(entry.size);
+                out.writeLong(entry.offset);
+                out.writeLong(entry.compressedSize);
+                out.writeInt(entry.crc);
+            }
+            out.writeLong(position);
+            out.writeBytes("HDIR");
+        }
+    }
+
+    /**
+     * Lists the members of an archive. Only the header and the central
+     * directory are read.
+     *
+     * @param archive the archive file
+     * @return the members in the order they were added
+     * @throws IOException if the file is not a valid archive
+     */
+    public List<Entry> list(Path archive) throws IOException {
+        try (FileChannel ch = FileChannel.open(archive, StandardOpenOption.READ)) {
+            return readDirectory(ch);
+        }
+    }
+
+    /**
+     * Extracts a single member. Only that member's blocks are read.
+     *
+     * @param archive the archive file
+     * @param name    the member's name, as returned by list
+     * @param output  the file to write the member to
+     * @throws IOException if the member does not exist or is corrupt
+     */
+    public void extract(Path archive, String name, Path output) throws IOException {
+        try (FileChannel ch = FileChannel.open(archive, StandardOpenOption.READ)) {
+            for (Entry entry : readDirectory(ch)) {
+                if (entry.name.equals(name)) {
+                    extract(ch, entry, output);
+                    return;
+                }
+            }
+            throw new FileNotFoundException("No member " + name + " in " + archive);
+        }
+    }
+
+    /**
+     * Extracts every member into a directory, creating subdirectories as
+     * needed.
+     *
+     * @param archive   the archive file
+     * @param directory the directory to extract into
+     * @throws IOException if the archive is corrupt or a member name points
+     *                     outside the directory
+     */
+    public void extractAll(Path archive, Path directory) throws IOException {
+        Path base = directory.toAbsolutePath().normalize();
+        try (FileChannel ch = FileChannel.open(archive, StandardOpenOption.READ)) {
+            for (Entry entry : readDirectory(ch)) {
+                Path output = base.resolve(entry.name).normalize();
+                if (!output.startsWith(base) || output.equals(base)) {
+                    throw new IOException("Member name escapes the target directory: " + entry.name);
+                }
+                Files.createDirectories(output.getParent());
+                extract(ch, entry, output);
+            }
+        }
+    }
+
+    /**
+     * Decodes one member and checks its size and checksum.
+     *
+     * @param ch     channel over the archive
+     * @param entry  the member to decode
+     * @param output the file to write the member to
+     * @throws IOException if the member is corrupt
+     */
+    private void extract(FileChannel ch, Entry entry, Path output) throws IOException {
+        ByteBuffer header = BlockIndex.readFully(ch, 4, ARCHIVE_HEADER_SIZE - 4);
+        int blockSize = header.getInt();
+        int maxCodeLength = header.get() & 0xFF;
+
+        CRC32 crc = new CRC32();
+        long size;
+        try (OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(output), HuffmanCompressor.DEFAULT_BUFFER_SIZE)) {
+            size = compressor.readBlocks(ch, entry.offset, blockSize, maxCodeLength, out, crc);
+        }
+        if (size != entry.size) {
+            throw new IOException("Corrupt member " + entry.name + ": expected " + entry.size
+                    + " bytes but blocks hold " + size);
+        }
+        if ((int) crc.getValue() != entry.crc) {
+            throw new IOException("Checksum mismatch in member " + entry.name);
+        }
+    }
+
+    /**
+     * Reads the central directory through the trailer at the end of the archive.
+     *
+     * @param ch channel over the archive
+     * @return the members of the archive
+     * @throws IOException if the file is not a valid archive
+     */
+    private static List<Entry> readDirectory(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size < ARCHIVE_HEADER_SIZE + 4 + TRAILER_SIZE) {
+            throw new IOException("Not a Huffman archive");
+        }
+        ByteBuffer header = BlockIndex.readFully(ch, 0, ARCHIVE_HEADER_SIZE);
+        ByteBuffer trailer = BlockIndex.readFully(ch, size - TRAILER_SIZE, TRAILER_SIZE);
+        long directoryPos = trailer.getLong();
+        byte[] magic = new byte[4];
+        header.get(magic);
+        boolean archive = new String(magic).equals("HARC");
+        trailer.get(magic);
+        if (!archive || !new String(magic).equals("HDIR")) {
+            throw new IOException("Not a Huffman archive");
+        }
+        int maxCodeLength = header.get(8) & 0xFF;
+        if (maxCodeLength < 1 || maxCodeLength > CanonicalCode.MAX_CODE_LENGTH) {
+            throw new IOException("Invalid code length limit: " + maxCodeLength);
+        }
+        if (directoryPos < ARCHIVE_HEADER_SIZE || directoryPos > size - TRAILER_SIZE - 4) {
+            throw new IOException("Corrupt archive directory");
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(ch.position(directoryPos))));
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt archive directory");
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readInt());
+            if (entry.size < 0 || entry.compressedSize < 4 || entry.offset < ARCHIVE_HEADER_SIZE
+                    || entry.offset + entry.compressedSize > directoryPos) {
+                throw new IOException("Corrupt archive directory");
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * @param root the directory member names are relative to
+     * @param file a file inside root
+     * @return the member name of the file, with '/' as the separator
+     */
+    private static String memberName(Path root, Path file) {
+        Path relative = root.toAbsolutePath().normalize().relativize(file.toAbsolutePath().normalize());
+        if (relative.toString().isEmpty() || relative.startsWith("..")) {
+            throw new IllegalArgumentException("File is not inside " + root + ": " + file);
+        }
+        StringJoiner name = new StringJoiner("/");
+        for (Path part : relative) {
+            name.add(part.toString());
+        }
+        return name.toString();
+    }
+
+    /**
+     * Entry describes one member of an archive, as listed in the central
+     * directory.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    public static final class Entry {
+        private final String name;
+        private final long size;
+        private final long offset;
+        private final long compressedSize;
+        private final int crc;
+
+        Entry(String name, long size, long offset, long compressedSize, int crc) {
+            this.name = name;
+            this.size = size;
+            this.offset = offset;
+            this.compressedSize = compressedSize;
+            this.crc = crc;
+        }
+
+        /**
+         * @return the member's path relative to the archive root, with '/' as the separator
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return the original size of the member in bytes
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * @return the file position of the member's first block in the archive
+         */
+        public long offset() {
+            return offset;
+        }
+
+        /**
+         * @return the number of archive bytes the member takes
+         */
+        public long compressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * @return the CRC-32 of the member's original bytes
+         */
+        public int crc() {
+            return crc;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package huffman;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * HuffmanBatch compresses or decompresses many files in one process,
+ * instead of starting a new JVM for each file. Every file gets its own
+ * task, and a failure in one file is reported in its result without
+ * stopping the others.
+ *
+ * On JDK 21 or later each file runs on its own virtual thread, so tasks
+ * waiting on file I/O cost almost nothing. A semaphore limits how many
+ * files are being coded at the same time, because coding is bound by the
+ * CPU and running more coders than cores only adds contention. The build
+ * targets Java 17, so the virtual thread executor is looked up by
+ * reflection at run time: on JDK 17 to 20 the lookup fails (on 19 and 20
+ * unless preview features are enabled) and a fixed pool with one thread
+ * per permit is used instead, which behaves the same apart from the cost
+ * of a blocked platform thread. The blocks of all files are coded on one ForkJoinPool,
+ * the compressor's own or the common pool, so the number of coding
+ * threads stays at the compressor's parallelism however many files are
+ * open at once.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public class HuffmanBatch {
+
+    private final HuffmanCompressor compressor;
+    private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a batch runner. Every file is processed with the settings of
+     * the given compressor, which must not be changed while a batch runs.
+     *
+     * @param compressor the configured compressor to run each file through
+     */
+    public HuffmanBatch(HuffmanCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Sets how many files may be compressed or decompressed at the same
+     * time. Defaults to the number of available processors.
+     *
+     * @param maxConcurrent the number of concurrent coders
+     * @throws IllegalArgumentException if maxConcurrent is not positive
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrent);
+        }
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Compresses every job's input into its output.
+     *
+     * @param jobs the input and output path of each file
+     * @return one result per job, in the same order
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<Result> compressAll(List<Job> jobs) throws InterruptedException {
+        return runAll(jobs, true);
+    }
+
+    /**
+     * Decompresses every job's input into its output.
+     *
+     * @param jobs the input and output path of each file
+     * @return one result per job, in the same order
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public List<Result> decompressAll(List<Job> jobs) throws InterruptedException {
+        return runAll(jobs, false);
+    }
+
+    /**
+     * Runs one task per job and collects the results in job order.
+     *
+     * @param jobs     the files to process
+     * @param compress true to compress, false to decompress
+     * @return one result per job
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private List<Result> runAll(List<Job> jobs, boolean compress) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrent);
+        ForkJoinPool pool = compressor.newPool();
+        HuffmanCompressor shared = compressor.sharingPool(pool);
+        ExecutorService executor = newExecutor(maxConcurrent);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                futures.add(executor.submit(() -> run(shared, job, compress, permits)));
+            }
+
+            List<Result> results = new ArrayList<>(jobs.size());
+            for (int i = 0; i < jobs.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // Anything run does not catch, such as an Error, still only fails its own file
+                    results.add(new Result(jobs.get(i), -1, -1, -1, e.getCause()));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            compressor.releasePool(pool);
+        }
+    }
+
+    /**
+     * Processes a single file while holding a permit.
+     *
+     * @param compressor the compressor to code with
+     * @param job        the file to process
+     * @param compress   true to compress, false to decompress
+     * @param permits    the semaphore limiting concurrent coders
+     * @return the outcome for the file
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    private static Result run(HuffmanCompressor compressor, Job job, boolean compress, Semaphore permits)
+            throws InterruptedException {
+        permits.acquire();
+        long start = System.nanoTime();
+        try {
+            if (compress) {
+                compressor.compress(job.input(), job.output());
+            } else {
+                compressor.decompress(job.input(), job.output());
+            }
+            return new Result(job, Files.size(job.input()), Files.size(job.output()), System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(job, -1, -1, System.nanoTime() - start, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor when the JDK has one, or
+     * a fixed pool of the given size otherwise.
+     *
+     * @param threads the pool size to fall back to
+     * @return the executor to run file tasks on
+     */
+    static ExecutorService newExecutor(int threads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Job names one file to process and where to write the result.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    public static final class Job {
+        private final Path input;
+        private final Path output;
+
+        /**
+         * @param input  the file to read
+         * @param output the file to write
+         */
+        public Job(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        /**
+         * @return the file to read
+         */
+        public Path input() {
+            return input;
+        }
+
+        /**
+         * @return the file to write
+         */
+        public Path output() {
+            return output;
+        }
+    }
+
+    /**
+     * Result describes how a single file of a batch went.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    public static final class Result {
+        private final Job job;
+        private final long inputSize;
+        private final long outputSize;
+        private final long nanos;
+        private final Throwable error;
+
+        Result(Job job, long inputSize, long outputSize, long nanos, Throwable error) {
+            this.job = job;
+            this.inputSize = inputSize;
+            this.outputSize = outputSize;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        /**
+         * @return the job this result belongs to
+         */
+        public Job job() {
+            return job;
+        }
+
+        /**
+         * @return true if the file was processed without error
+         */
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        /**
+         * @return the error the file failed with, or null if it succeeded
+         */
+        public Throwable error() {
+            return error;
+        }
+
+        /**
+         * @return the size of the input file in bytes, or -1 if it failed
+         */
+        public long inputSize() {
+            return inputSize;
+        }
+
+        /**
+         * @return the size of the output file in bytes, or -1 if it failed
+         */
+        public long outputSize() {
+            return outputSize;
+        }
+
+        /**
+         * @return how long the file took, in nanoseconds, excluding time
+         *         spent waiting for a permit, or -1 if it failed with an Error
+         */
+        public long nanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * HuffmanChannels adapts NIO channels to compress or decompress what
+ * passes through them, much as java.nio.channels.Channels adapts streams.
+ * The adapters drive a HuffmanEncoder or HuffmanDecoder with a single
+ * direct buffer between the codec and the underlying channel, so data
+ * moves between direct buffers and channels without passing through heap
+ * arrays. The compressing side's buffer holds a whole block record, so the
+ * encoder writes each record straight into it.
+ *
+ * Non-blocking channels are supported: when the underlying channel takes
+ * or gives no bytes, read and write return 0 and pick up where they left
+ * off on the next call. Closing a compressing channel writes the rest of
+ * the compressed data; if a non-blocking target stops taking it, close
+ * throws an IOException and leaves the channel open, and calling close
+ * again once the target is writable carries on where it stopped.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanChannels {
+
+    private HuffmanChannels() {
+    }
+
+    /**
+     * Creates a channel that compresses everything written to it into the
+     * given channel. The data is complete once the returned channel is
+     * closed, which also closes the target.
+     *
+     * @param target     the channel receiving the compressed data
+     * @param compressor the configured compressor to code blocks with
+     * @return a compressing channel
+     */
+    public static WritableByteChannel compressing(WritableByteChannel target, HuffmanCompressor compressor) {
+        return new CompressingChannel(target, compressor);
+    }
+
+    /**
+     * Creates a channel that decompresses data read from the given channel.
+     * The adapter reads the source in chunks, so it may read past the end
+     * of the compressed data.
+     *
+     * @param source     the channel holding the compressed data
+     * @param compressor the configured compressor to decode blocks with
+     * @return a decompressing channel
+     */
+    public static ReadableByteChannel decompressing(ReadableByteChannel source, HuffmanCompressor compressor) {
+        return new DecompressingChannel(source, compressor);
+    }
+
+    /**
+     * CompressingChannel passes written bytes through a HuffmanEncoder.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    private static final class CompressingChannel implements WritableByteChannel {
+        private final WritableByteChannel target;
+        private final HuffmanEncoder encoder;
+        private final ByteBuffer buffer;
+        private final ByteBuffer empty = ByteBuffer.allocate(0);
+        private boolean open = true;
+        private boolean closing;
+
+        CompressingChannel(WritableByteChannel target, HuffmanCompressor compressor) {
+            this.target = target;
+            this.encoder = new HuffmanEncoder(compressor);
+            int recordSize = BlockCodec.maxRecordLength(compressor.blockSize());
+            this.buffer = ByteBuffer.allocateDirect(Math.max(compressor.bufferSize(), recordSize)).flip();
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!open || closing) {
+                throw new ClosedChannelException();
+            }
+            int start = src.position();
+            encoder.setInput(src);
+            try {
+                // Stop as soon as the target stops taking bytes
+                while (drain()) {
+                    buffer.clear();
+                    int n = encoder.encode(buffer);
+                    buffer.flip();
+                    if (n == 0) {
+                        break;
+                    }
+                }
+            } finally {
+                encoder.setInput(empty);
+            }
+            return src.position() - start;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!open) {
+                return;
+            }
+            closing = true;
+            encoder.finish();
+            try {
+                while (drain() && !encoder.finished()) {
+                    buffer.clear();
+                    encoder.encode(buffer);
+                    buffer.flip();
+                }
+            } catch (IOException | RuntimeException e) {
+                open = false;
+                try {
+                    target.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Target channel is not ready; close again to finish the compressed data");
+            }
+            open = false;
+            target.close();
+        }
+
+        /**
+         * Writes buffered output to the target.
+         *
+         * @return true if the buffer was emptied
+         * @throws IOException if an I/O error occurs
+         */
+        private boolean drain() throws IOException {
+            while (buffer.hasRemaining()) {
+                if (target.write(buffer) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * DecompressingChannel passes bytes read from its source through a
+     * HuffmanDecoder.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    private static final class DecompressingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel source;
+        private final HuffmanDecoder decoder;
+        private final ByteBuffer buffer;
+        private boolean open = true;
+
+        DecompressingChannel(ReadableByteChannel source, HuffmanCompressor compressor) {
+            this.source = source;
+            this.decoder = new HuffmanDecoder(compressor);
+            this.buffer = ByteBuffer.allocateDirect(compressor.bufferSize()).flip();
+            decoder.setInput(buffer);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            while (true) {
+                int n = decoder.decode(dst);
+                if (n > 0) {
+                    return n;
+                }
+                if (decoder.finished()) {
+                    return -1;
+                }
+                if (!dst.hasRemaining()) {
+                    return 0;
+                }
+
+                // The decoder has used up the buffer, so refill it from the source
+                buffer.clear();
+                int r = source.read(buffer);
+                buffer.flip();
+                if (r < 0) {
+                    throw new EOFException("Unexpected end of compressed data");
+                }
+                if (r == 0) {
+                    return 0;
+                }
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            source.close();
+        }
+    }
+}
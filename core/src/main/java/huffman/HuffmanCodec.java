@@ -0,0 +1,283 @@
+package huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * HuffmanCodec compresses and decompresses byte arrays in memory, for
+ * callers that code many small payloads, such as request bodies, and
+ * cannot afford garbage on every call. A codec holds every table it needs
+ * and reuses the same pieces as the file compressor: code lengths from
+ * HuffmanTree.optimalLengths, limited with package-merge when needed,
+ * canonical codes and length tables from CanonicalCode, a
+ * HuffmanDecodeTable rebuilt in place, and bit streams that are reset for
+ * each call. After the first call, compress allocates nothing while it
+ * is given the same destination array, and decompress allocates nothing
+ * while it is given the same source array, as reused send and receive
+ * buffers are; a new array costs one ByteBuffer wrapper.
+ *
+ * The compressed form is a single block record, as described in
+ * BlockCodec, so it holds its own length and can be stored or sent as it
+ * is. The encoder writes MODE_RUN, MODE_HUFFMAN or MODE_STORED blocks, and
+ * never makes the data more than BlockCodec.BLOCK_HEADER_SIZE bytes
+ * larger, which is what maxCompressedLength returns. Codes are limited to
+ * MAX_CODE_LENGTH bits so every symbol decodes with one table lookup.
+ * Huffman blocks with longer codes, as HuffmanCompressor may write, decode
+ * through the table's sub-tables; blocks in other modes are decoded as
+ * well, but through the allocating BlockCodec path.
+ *
+ * A codec is not thread-safe. Keep one per thread, or pool them.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanCodec {
+
+    /** Longest code the encoder produces, and the width of the decoding table. */
+    public static final int MAX_CODE_LENGTH = HuffmanDecodeTable.ROOT_BITS;
+
+    private final long[] counts = new long[256];
+    private final int[] lengths = new int[256];
+    private final long[] codes = new long[256];
+    private final long[] nextCode = new long[CanonicalCode.MAX_CODE_LENGTH + 1];
+    private final long[] work = new long[512];
+    private final int[] mergeSymbols = new int[256];
+    private final long[] mergeWeights = new long[MAX_CODE_LENGTH * HuffmanCompressor.MERGE_LIST_SIZE];
+    private final boolean[] mergeLeaves = new boolean[MAX_CODE_LENGTH * HuffmanCompressor.MERGE_LIST_SIZE];
+    private final HuffmanDecodeTable table = new HuffmanDecodeTable();
+    private final HuffmanCompressor.BitOutputStream bitOut = new HuffmanCompressor.BitOutputStream(ByteBuffer.allocate(0), 0);
+    private final HuffmanCompressor.BitInputStream bitIn = new HuffmanCompressor.BitInputStream(ByteBuffer.allocate(0));
+    private ByteBuffer source;
+    private ByteBuffer target;
+
+    /**
+     * @param len the number of original bytes
+     * @return the largest number of bytes compress can write for them
+     * @throws IllegalArgumentException if len is negative or the bound does not fit in an int
+     */
+    public static int maxCompressedLength(int len) {
+        if (len < 0 || len > Integer.MAX_VALUE - BlockCodec.BLOCK_HEADER_SIZE) {
+            throw new IllegalArgumentException("Length out of range: " + len);
+        }
+        return BlockCodec.BLOCK_HEADER_SIZE + len;
+    }
+
+    /**
+     * Reads the original length from the header of compressed data, so the
+     * caller can size the array for decompress.
+     *
+     * @param src the compressed data
+     * @param off offset of the compressed data in src
+     * @return the number of bytes decompress will write
+     * @throws IOException if the header is truncated or invalid
+     */
+    public static int decompressedLength(byte[] src, int off) throws IOException {
+        if (off < 0 || src.length - off < BlockCodec.BLOCK_HEADER_SIZE) {
+            throw new IOException("Truncated block record");
+        }
+        int rawLen = readInt(src, off);
+        if (rawLen < 0) {
+            throw new IOException("Corrupt block header");
+        }
+        return rawLen;
+    }
+
+    /**
+     * Compresses a range of an array into another array.
+     *
+     * @param src    the original data
+     * @param off    offset of the first byte to compress
+     * @param len    number of bytes to compress
+     * @param dst    the array receiving the compressed data
+     * @param dstOff offset in dst at which to start writing
+     * @return the number of bytes written to dst, at most maxCompressedLength(len)
+     * @throws IndexOutOfBoundsException if a range lies outside its array or dst is too small
+     */
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        Objects.checkFromIndexSize(off, len, src.length);
+        int end = off + len;
+
+        Arrays.fill(counts, 0);
+        for (int i = off; i < end; i++) {
+            counts[src[i] & 0xFF]++;
+        }
+
+        int distinct = 0;
+        for (int s = 0; s < 256; s++) {
+            if (counts[s] > 0) {
+                distinct++;
+            }
+        }
+        if (distinct == 1) {
+            Objects.checkFromIndexSize(dstOff, BlockCodec.BLOCK_HEADER_SIZE + 1, dst.length);
+            writeHeader(dst, dstOff, len, BlockCodec.MODE_RUN, 1);
+            dst[dstOff + BlockCodec.BLOCK_HEADER_SIZE] = src[off];
+            return BlockCodec.BLOCK_HEADER_SIZE + 1;
+        }
+
+        long bitBytes = Long.MAX_VALUE;
+        int tableSize = 0;
+        if (distinct > 1) {
+            buildLengths();
+            long bits = 0;
+            for (int s = 0; s < 256; s++) {
+                bits += counts[s] * lengths[s];
+            }
+            bitBytes = (bits + 7) / 8;
+            tableSize = CanonicalCode.tableSize(lengths);
+        }
+
+        if (tableSize + bitBytes >= len) {
+            Objects.checkFromIndexSize(dstOff, BlockCodec.BLOCK_HEADER_SIZE + len, dst.length);
+            writeHeader(dst, dstOff, len, BlockCodec.MODE_STORED, len);
+            System.arraycopy(src, off, dst, dstOff + BlockCodec.BLOCK_HEADER_SIZE, len);
+            return BlockCodec.BLOCK_HEADER_SIZE + len;
+        }
+
+        int payloadLen = tableSize + (int) bitBytes;
+        Objects.checkFromIndexSize(dstOff, BlockCodec.BLOCK_HEADER_SIZE + payloadLen, dst.length);
+        writeHeader(dst, dstOff, len, BlockCodec.MODE_HUFFMAN, payloadLen);
+        ByteBuffer out = wrapTarget(dst);
+        int p = CanonicalCode.writeLengths(lengths, out, dstOff + BlockCodec.BLOCK_HEADER_SIZE);
+        try {
+            CanonicalCode.assignCodes(lengths, codes, nextCode);
+            bitOut.reset(out, p);
+            for (int i = off; i < end; i++) {
+                int s = src[i] & 0xFF;
+                bitOut.writeBits((int) codes[s], lengths[s]);
+            }
+            bitOut.flush();
+        } catch (IOException e) {
+            // The lengths form a valid code and dst was checked to hold the payload
+            throw new IllegalStateException(e);
+        }
+        return bitOut.position() - dstOff;
+    }
+
+    /**
+     * Decompresses one block record into an array.
+     *
+     * @param src    the compressed data
+     * @param off    offset of the compressed data in src
+     * @param len    number of compressed bytes available from off
+     * @param dst    the array receiving the original data
+     * @param dstOff offset in dst at which to start writing
+     * @return the number of bytes written to dst, as given by decompressedLength
+     * @throws IOException               if the compressed data is corrupt
+     * @throws IndexOutOfBoundsException if a range lies outside its array or dst is too small
+     */
+    public int decompress(byte[] src, int off, int len, byte[] dst, int dstOff) throws IOException {
+        Objects.checkFromIndexSize(off, len, src.length);
+        if (len < BlockCodec.BLOCK_HEADER_SIZE) {
+            throw new IOException("Truncated block record");
+        }
+        int rawLen = readInt(src, off);
+        int mode = src[off + 4] & 0xFF;
+        int payloadLen = readInt(src, off + 5);
+        if (rawLen < 0 || payloadLen < 0 || payloadLen > len - BlockCodec.BLOCK_HEADER_SIZE) {
+            throw new IOException("Corrupt block header");
+        }
+        Objects.checkFromIndexSize(dstOff, rawLen, dst.length);
+
+        int p = off + BlockCodec.BLOCK_HEADER_SIZE;
+        int end = p + payloadLen;
+        if (mode == BlockCodec.MODE_STORED) {
+            if (payloadLen != rawLen) {
+                throw new IOException("Corrupt stored block");
+            }
+            System.arraycopy(src, p, dst, dstOff, rawLen);
+            return rawLen;
+        }
+        if (mode == BlockCodec.MODE_RUN) {
+            if (payloadLen != 1) {
+                throw new IOException("Corrupt run block");
+            }
+            Arrays.fill(dst, dstOff, dstOff + rawLen, src[p]);
+            return rawLen;
+        }
+        if (mode == BlockCodec.MODE_HUFFMAN) {
+            int bitsStart = CanonicalCode.readLengths(src, p, end, lengths);
+            CanonicalCode.assignCodes(lengths, codes, nextCode);
+            table.rebuild(codes, lengths);
+            bitIn.reset(view(src, bitsStart, end));
+            for (int i = dstOff; i < dstOff + rawLen; i++) {
+                dst[i] = (byte) table.decode(bitIn);
+            }
+            return rawLen;
+        }
+
+        // Other modes go through the general decoder
+        BlockCodec.decode(mode, ByteBuffer.wrap(src, p, payloadLen), ByteBuffer.wrap(dst, dstOff, rawLen),
+                rawLen, CanonicalCode.MAX_CODE_LENGTH, null);
+        return rawLen;
+    }
+
+    /**
+     * Computes optimal code lengths for the current counts, then limits
+     * them to MAX_CODE_LENGTH with package-merge if any is longer.
+     */
+    private void buildLengths() {
+        if (HuffmanTree.optimalLengths(counts, work, lengths) > MAX_CODE_LENGTH) {
+            HuffmanCompressor.packageMerge(counts, MAX_CODE_LENGTH, lengths, mergeSymbols, mergeWeights, mergeLeaves);
+        }
+    }
+
+    /**
+     * Returns a buffer over a range of a source array, reusing the wrapper
+     * from the previous call when the array is the same.
+     *
+     * @param src  the source array
+     * @param from offset of the first byte
+     * @param to   offset just after the last byte
+     * @return a big-endian buffer positioned at from with its limit at to
+     */
+    private ByteBuffer view(byte[] src, int from, int to) {
+        if (source == null || source.array() != src) {
+            source = ByteBuffer.wrap(src);
+        }
+        return source.clear().limit(to).position(from);
+    }
+
+    /**
+     * Returns a buffer over a whole destination array, reusing the wrapper
+     * from the previous call when the array is the same. Writes into it are
+     * absolute, so its position and limit are left alone.
+     *
+     * @param dst the destination array
+     * @return a big-endian buffer over dst
+     */
+    private ByteBuffer wrapTarget(byte[] dst) {
+        if (target == null || target.array() != dst) {
+            target = ByteBuffer.wrap(dst);
+        }
+        return target;
+    }
+
+    /**
+     * Writes a block record header.
+     *
+     * @param dst        the array to write to
+     * @param off        offset of the header
+     * @param rawLen     number of original bytes in the block
+     * @param mode       the block mode
+     * @param payloadLen length of the payload that follows
+     */
+    private static void writeHeader(byte[] dst, int off, int rawLen, int mode, int payloadLen) {
+        writeInt(dst, off, rawLen);
+        dst[off + 4] = (byte) mode;
+        writeInt(dst, off + 5, payloadLen);
+    }
+
+    private static void writeInt(byte[] dst, int off, int value) {
+        dst[off] = (byte) (value >>> 24);
+        dst[off + 1] = (byte) (value >>> 16);
+        dst[off + 2] = (byte) (value >>> 8);
+        dst[off + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] src, int off) {
+        return (src[off] & 0xFF) << 24 | (src[off + 1] & 0xFF) << 16 | (src[off + 2] & 0xFF) << 8 | src[off + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,1178 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Checksum;
+
+/**
+ * HuffmanCompressor handles compressing and decompressing byte data
+ * using Huffman coding. It reads the raw bytes, builds a frequency table,
+ * constructs a Huffman tree, assigns bit codes to each symbol, and then
+ * writes a compact bit-level representation to an output file.
+ *
+ * The input is split into fixed-size blocks that are compressed in
+ * parallel, each with its own code table. The compressed file starts
+ * with a small header containing:
+ * - A magic string "HUF4" to identify the format
+ * - The original uncompressed length (in bytes)
+ * - The block size used by the compressor (in bytes)
+ * - The longest code length any block may use (byte)
+ * followed by one record per block, as described in BlockCodec, and an
+ * int 0 marking the end of the blocks. "HUF3" files have the same layout
+ * without the code length limit, which is then 32. HuffmanOutputStream
+ * writes the HUF4 layout with an original length of -1, as it cannot know
+ * the length up front.
+ *
+ * Streams written by AdaptiveHuffman ("HUFA") are decompressed as well.
+ *
+ * Older single-stream files can still be decompressed. "HUF2" files hold
+ * the original length, one code length table (see CanonicalCode) and the
+ * encoded bits. "HUF1" files list every symbol with its full bit pattern
+ * instead of a code length table.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public class HuffmanCompressor {
+
+    /** Default size of the read and write buffers, in bytes. */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /** Default number of original bytes per compressed block. */
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /** Largest region of a file mapped at once in memory-mapped mode. */
+    static final long MAP_CHUNK_SIZE = 1L << 30;
+
+    /** Longest list package-merge keeps at any level: 2n - 2 items for all 256 symbols. */
+    static final int MERGE_LIST_SIZE = 2 * 256 - 2;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int parallelism = 0; // 0 uses the common ForkJoinPool
+    private boolean memoryMapped = false;
+    private int maxCodeLength = CanonicalCode.MAX_CODE_LENGTH;
+    private boolean contextModeling = false;
+    private boolean interleaved = false;
+    private HuffmanDictionary dictionary = null;
+    private ForkJoinPool sharedPool = null; // set only on copies made by sharingPool
+
+    /**
+     * Sets the size of the buffers used to read and write files.
+     *
+     * @param bufferSize the buffer size in bytes
+     * @throws IllegalArgumentException if bufferSize is not positive
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Sets how many original bytes go into each compressed block. Larger
+     * blocks amortize the per-block code table, smaller blocks adapt to
+     * changing data and give more parallelism on small files.
+     *
+     * @param blockSize the block size in bytes
+     * @throws IllegalArgumentException if blockSize is not positive
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Sets how many threads compress or decompress blocks at the same time.
+     * By default the common ForkJoinPool is used.
+     *
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Switches between stream I/O and memory-mapped I/O. When enabled, the
+     * input of compress is mapped with FileChannel.map in chunks of up to
+     * MAP_CHUNK_SIZE and blocks are counted and encoded straight from the
+     * mapping. decompress maps each compressed block and decodes it straight
+     * into a mapping of the output file, which is pre-sized to the original
+     * length. Either way no block is copied onto the heap, and the OS page
+     * cache does the reading and writing.
+     *
+     * @param memoryMapped true to map files, false to use stream I/O
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Limits how long any code may be. Short limits let the decoder resolve
+     * every symbol with a single table lookup (HuffmanDecodeTable resolves
+     * up to ROOT_BITS bits at once) at the cost of a slightly worse ratio on
+     * very skewed data. Blocks whose optimal codes are too long get
+     * length-limited codes built with the package-merge algorithm.
+     *
+     * @param maxCodeLength the longest code length in bits, 8 to 32
+     * @throws IllegalArgumentException if maxCodeLength is out of range
+     */
+    public void setMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < 8 || maxCodeLength > CanonicalCode.MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Max code length must be between 8 and "
+                    + CanonicalCode.MAX_CODE_LENGTH + ": " + maxCodeLength);
+        }
+        this.maxCodeLength = maxCodeLength;
+    }
+
+    /**
+     * Enables order-1 context modeling, where the code for each byte is
+     * chosen by the byte before it (see ContextCodec). Every block is then
+     * planned both ways and stored in whichever form is smaller. This costs
+     * compression speed but shrinks text and logs considerably; the
+     * decoder stays table-driven either way.
+     *
+     * @param contextModeling true to try order-1 coding for every block
+     */
+    public void setContextModeling(boolean contextModeling) {
+        this.contextModeling = contextModeling;
+    }
+
+    /**
+     * Writes Huffman blocks as BlockCodec.STREAMS interleaved bitstreams,
+     * with symbol i of a block going to stream i % STREAMS. The decoder
+     * then keeps one bit reader per stream and decodes a symbol from each
+     * in every round, which lets the CPU overlap lookups that a single
+     * stream would have to do one after another. The streams cost a few
+     * bytes of sizes and padding per block.
+     *
+     * @param interleaved true to write interleaved blocks
+     */
+    public void setInterleaved(boolean interleaved) {
+        this.interleaved = interleaved;
+    }
+
+    /**
+     * Sets a trained dictionary for compressing and decompressing. When
+     * compressing, each block is coded with the dictionary's table unless a
+     * table of its own would be smaller, which saves storing a table and
+     * building a tree for small files. Files compressed with a dictionary
+     * need the same dictionary to be decompressed.
+     *
+     * @param dictionary the dictionary to use, or null for none
+     */
+    public void setDictionary(HuffmanDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the size of the read and write buffers, in bytes
+     */
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of original bytes that go into each block
+     */
+    int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return the longest code length any block may use
+     */
+    int maxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Compresses the input file into a Huffman-encoded output file.
+     * The input is read one block at a time and every block is handed to a
+     * ForkJoinPool, where its frequency table, Huffman tree, canonical codes
+     * and bitstream are built independently of the other blocks. Finished
+     * blocks are written out in their original order.
+     *
+     * Only a bounded number of blocks (twice the pool's parallelism) are in
+     * flight at once, so memory use does not depend on the input size.
+     * After the blocks, a footer with the position of every block is
+     * written so that readRange can jump straight to any block.
+     *
+     * @param input  path to the original uncompressed file
+     * @param output path to the compressed output file
+     * @throws IOException if any I/O errors occur while reading or writing,
+     *                     or if the input changes while it is compressed
+     */
+    public void compress(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(output), bufferSize))) {
+            // Write magic header, original length, block size and code length limit
+            long originalLen = in.size();
+            out.writeBytes("HUF4");
+            out.writeLong(originalLen);
+            out.writeInt(blockSize);
+            out.writeByte(maxCodeLength);
+
+            BlockIndex index = new BlockIndex(originalLen, blockSize);
+            long footerPos = writeBlocks(in, out, BlockIndex.FILE_HEADER_SIZE, index, null);
+            index.writeFooter(out, footerPos);
+        }
+    }
+
+    /**
+     * Compresses a whole input channel into block records, followed by the
+     * end marker. Each block is handed to the pool and finished blocks are
+     * written in order, with at most two blocks per worker in flight.
+     *
+     * @param in       channel over the input, whose size the index expects
+     * @param out      the stream receiving the records
+     * @param position file position at which the first record is written
+     * @param index    receives the position of every block
+     * @param checksum updated with every original byte in order, or null
+     * @return the file position just after the end marker
+     * @throws IOException if an I/O error occurs or the input changes size
+     */
+    long writeBlocks(FileChannel in, DataOutputStream out, long position, BlockIndex index, Checksum checksum)
+            throws IOException {
+        ForkJoinPool pool = newPool();
+        int maxInFlight = 2 * pool.getParallelism();
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+
+        try {
+            long total = 0;
+            long written = 0;
+
+            BlockSource source = new BlockSource(in);
+            while (true) {
+                ByteBuffer block = source.next();
+                if (block != null) {
+                    total += block.remaining();
+                    if (checksum != null) {
+                        checksum.update(block.duplicate());
+                    }
+                    pending.addLast(pool.submit(() -> {
+                        try {
+                            return encodeBlock(block);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+
+                // Once the input is exhausted, drain the remaining blocks
+                if (block == null || pending.size() >= maxInFlight) {
+                    byte[] record = join(pending.removeFirst());
+                    index.add(position, written);
+                    out.write(record);
+                    position += record.length;
+                    written += ByteBuffer.wrap(record).getInt();
+                }
+            }
+            out.writeInt(0);
+
+            if (total != index.originalLen) {
+                throw new IOException("Input changed during compression");
+            }
+            return position + 4;
+        } finally {
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(true);
+            }
+            releasePool(pool);
+        }
+    }
+
+    /**
+     * @return the shared pool of a copy made by sharingPool, otherwise a new
+     *         pool of the configured parallelism, or the common pool if none
+     *         was set; callers hand it back to releasePool when done
+     */
+    ForkJoinPool newPool() {
+        if (sharedPool != null) {
+            return sharedPool;
+        }
+        return parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Shuts down a pool returned by newPool, unless it is the common pool or
+     * a shared one, which outlive the call that used them.
+     *
+     * @param pool the pool returned by newPool
+     */
+    void releasePool(ForkJoinPool pool) {
+        if (pool != sharedPool && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns a copy of this compressor's settings that codes every file on
+     * the given pool instead of creating its own, so that several files
+     * coded at once share one set of worker threads. The caller owns the
+     * pool and shuts it down.
+     *
+     * @param pool the pool to run block tasks on
+     * @return the copy
+     */
+    HuffmanCompressor sharingPool(ForkJoinPool pool) {
+        HuffmanCompressor copy = new HuffmanCompressor();
+        copy.bufferSize = bufferSize;
+        copy.blockSize = blockSize;
+        copy.parallelism = parallelism;
+        copy.memoryMapped = memoryMapped;
+        copy.maxCodeLength = maxCodeLength;
+        copy.contextModeling = contextModeling;
+        copy.interleaved = interleaved;
+        copy.dictionary = dictionary;
+        copy.sharedPool = pool;
+        return copy;
+    }
+
+    /**
+     * Decodes block records one after another, starting at a given file
+     * position, until the end marker.
+     *
+     * @param in            channel over the compressed file
+     * @param position      file position of the first record
+     * @param maxBlockSize  the largest number of original bytes a block may hold
+     * @param maxCodeLength the code length limit the blocks were written with
+     * @param out           the stream receiving the original bytes
+     * @param checksum      updated with every original byte in order, or null
+     * @return the number of original bytes decoded
+     * @throws IOException if a record is corrupt or an I/O error occurs
+     */
+    long readBlocks(FileChannel in, long position, int maxBlockSize, int maxCodeLength,
+                    OutputStream out, Checksum checksum) throws IOException {
+        byte[] block = new byte[0];
+        long total = 0;
+        while (true) {
+            ByteBuffer header = BlockIndex.readFully(in, position, 4);
+            int rawLen = header.getInt();
+            if (rawLen == 0) {
+                return total;
+            }
+
+            header = BlockIndex.readFully(in, position + 4, BlockCodec.BLOCK_HEADER_SIZE - 4);
+            int mode = header.get() & 0xFF;
+            int payloadLen = header.getInt();
+            if (rawLen < 0 || rawLen > maxBlockSize || payloadLen < 0) {
+                throw new IOException("Corrupt block header");
+            }
+            if (block.length < rawLen) {
+                block = new byte[rawLen];
+            }
+
+            ByteBuffer payload = BlockIndex.readFully(in, position + BlockCodec.BLOCK_HEADER_SIZE, payloadLen);
+            decodeBlock(mode, payload, ByteBuffer.wrap(block), rawLen, maxCodeLength);
+            if (checksum != null) {
+                checksum.update(block, 0, rawLen);
+            }
+            out.write(block, 0, rawLen);
+
+            position += BlockCodec.BLOCK_HEADER_SIZE + payloadLen;
+            total += rawLen;
+        }
+    }
+
+    /**
+     * Encodes one block with the settings of this compressor.
+     *
+     * @param block buffer whose remaining bytes (at least 1) form the block
+     * @return the complete block record, header included
+     * @throws IOException if the block cannot be encoded
+     */
+    byte[] encodeBlock(ByteBuffer block) throws IOException {
+        return BlockCodec.encode(block, maxCodeLength, contextModeling, interleaved, dictionary);
+    }
+
+    /**
+     * Encodes one block with the settings of this compressor, writing the
+     * record straight into the given buffer.
+     *
+     * @param block buffer whose remaining bytes (at least 1) form the block
+     * @param out   buffer receiving the record at its position, with room for
+     *              BlockCodec.maxRecordLength(block.remaining()) bytes
+     * @return the length of the record
+     * @throws IOException if the block cannot be encoded
+     */
+    int encodeBlock(ByteBuffer block, ByteBuffer out) throws IOException {
+        return BlockCodec.encode(block, out, maxCodeLength, contextModeling, interleaved, dictionary);
+    }
+
+    /**
+     * Decodes one block payload, using this compressor's dictionary for
+     * dictionary blocks.
+     *
+     * @param mode          the block mode from the record header
+     * @param payload       buffer whose remaining bytes are the payload
+     * @param out           buffer receiving the original bytes at its position
+     * @param rawLen        number of original bytes in the block
+     * @param maxCodeLength the code length limit the block was written with
+     * @throws IOException if the block is corrupt
+     */
+    void decodeBlock(int mode, ByteBuffer payload, ByteBuffer out, int rawLen, int maxCodeLength)
+            throws IOException {
+        BlockCodec.decode(mode, payload, out, rawLen, maxCodeLength, dictionary);
+    }
+
+    /**
+     * Waits for a block task to finish and returns its result, unwrapping
+     * any IOException the task failed with.
+     *
+     * @param task the submitted block task
+     * @param <T>  the result type of the task
+     * @return the result of the task
+     * @throws IOException if the task failed with an IOException
+     */
+    static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof IOException) {
+                    throw (IOException) t;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Decompresses a Huffman-encoded file produced by this class.
+     * The blocks of a block container are decoded in parallel. For
+     * single-stream files
+     * the header is read to reconstruct the code table, a lookup table is
+     * built from it, and the bits are decoded back into the original bytes.
+     *
+     * @param input  path to the compressed input file
+     * @param output path where the decompressed file will be written
+     * @throws IOException if the file format is invalid or I/O fails
+     */
+    public void decompress(Path input, Path output) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(input), bufferSize))) {
+
+            String magic = new String(in.readNBytes(4));
+            long originalLen;
+            HuffmanDecodeTable table = null;
+
+            if (magic.equals("HUF4") || magic.equals("HUF3")) {
+                decompressBlocks(input, output);
+                return;
+            } else if (magic.equals("HUFA")) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), bufferSize)) {
+                    AdaptiveHuffman.decodeSegments(in, out);
+                }
+                return;
+            } else if (magic.equals("HUF2")) {
+                originalLen = in.readLong();
+                int[] lengths = CanonicalCode.readLengths(in);
+                if (originalLen > 0) {
+                    table = HuffmanDecodeTable.build(CanonicalCode.assignCodes(lengths), lengths);
+                }
+            } else if (magic.equals("HUF1")) {
+                originalLen = in.readLong();
+                int symbolCount = in.readUnsignedShort();
+                long[] codes = new long[256];
+                int[] lengths = new int[256];
+
+                // Read back each symbol's bit code from the header
+                for (int i = 0; i < symbolCount; i++) {
+                    int symbol = in.readUnsignedByte();
+                    int L = in.readUnsignedByte();
+
+                    int numBytes = (L + 7) / 8;
+                    byte[] packed = in.readNBytes(numBytes);
+
+                    // Unpack the stored bytes, keeping only the first L bits
+                    long code = 0;
+                    for (int j = 0; j < L; j++) {
+                        int bit = (packed[j / 8] >> (7 - j % 8)) & 1;
+                        code = (code << 1) | bit;
+                    }
+
+                    codes[symbol] = code;
+                    lengths[symbol] = L;
+                }
+                if (originalLen > 0) {
+                    table = HuffmanDecodeTable.build(codes, lengths);
+                }
+            } else {
+                throw new IOException("Not a Huffman compressed file");
+            }
+
+            // Now decode the bitstream using a lookup table built from the codes
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), bufferSize)) {
+                BitInputStream bitIn = new BitInputStream(in);
+                long produced = 0;
+
+                while (produced < originalLen) {
+                    out.write(table.decode(bitIn));
+                    produced++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the blocks of a HUF4 or HUF3 container in parallel. The block headers
+     * are scanned first to find where each block starts in both files, then
+     * every block is decoded by a ForkJoinPool worker and written straight
+     * to its own region of the output with a positional write, so finished
+     * blocks never have to wait for earlier ones.
+     *
+     * @param input  path to the compressed input file
+     * @param output path where the decompressed file will be written
+     * @throws IOException if the container is corrupt or I/O fails
+     */
+    private void decompressBlocks(Path input, Path output) throws IOException {
+        ForkJoinPool pool = newPool();
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+        AtomicBoolean stop = new AtomicBoolean();
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BlockIndex index = BlockIndex.read(in);
+            if (memoryMapped && index.originalLen > 0) {
+                // Pre-size the output so each block's mapping lies inside the file
+                out.write(ByteBuffer.allocate(1), index.originalLen - 1);
+            }
+
+            for (int i = 0; i < index.blockCount(); i++) {
+                int block = i;
+                tasks.add(pool.submit(() -> {
+                    if (stop.get()) {
+                        return null;
+                    }
+                    try {
+                        long rawOffset = index.rawOffset(block);
+                        int rawLen = index.rawLength(block);
+                        if (memoryMapped) {
+                            ByteBuffer region = out.map(FileChannel.MapMode.READ_WRITE, rawOffset, rawLen);
+                            index.decodeBlock(in, block, region, true, dictionary);
+                            return null;
+                        }
+
+                        ByteBuffer data = ByteBuffer.allocate(rawLen);
+                        index.decodeBlock(in, block, data, false, dictionary);
+                        data.flip();
+                        while (data.hasRemaining()) {
+                            out.write(data, rawOffset + data.position());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }));
+            }
+            for (ForkJoinTask<Void> task : tasks) {
+                join(task);
+            }
+        } finally {
+            // Cancelling would not stop a task that is already running, and
+            // one still using a mapping must not outlive the call, since the
+            // caller may truncate or delete the files as soon as it returns.
+            // Blocks that have not started are skipped instead.
+            stop.set(true);
+            for (ForkJoinTask<Void> task : tasks) {
+                task.quietlyJoin();
+            }
+            releasePool(pool);
+        }
+    }
+
+    /**
+     * Reads a range of the original data from a compressed block container
+     * without decompressing the whole file. The block index in the footer
+     * locates the blocks covering the range, and only those are decoded.
+     *
+     * @param compressed path to a HUF4 or HUF3 compressed file
+     * @param offset     offset of the first original byte to read
+     * @param length     number of bytes to read
+     * @return the requested bytes of the original data
+     * @throws IOException               if the file is not a valid block container
+     * @throws IndexOutOfBoundsException if the range lies outside the original data
+     */
+    public byte[] readRange(Path compressed, long offset, int length) throws IOException {
+        try (FileChannel in = FileChannel.open(compressed, StandardOpenOption.READ)) {
+            BlockIndex index = BlockIndex.read(in);
+            Objects.checkFromIndexSize(offset, length, index.originalLen);
+
+            byte[] result = new byte[length];
+            byte[] block = new byte[0];
+            int filled = 0;
+
+            // Decode each block that overlaps the range and copy out the overlap
+            for (int i = index.blockAt(offset); filled < length; i++) {
+                int rawLen = index.rawLength(i);
+                if (block.length < rawLen) {
+                    block = new byte[rawLen];
+                }
+                index.decodeBlock(in, i, ByteBuffer.wrap(block), memoryMapped, dictionary);
+
+                int from = (int) (offset + filled - index.rawOffset(i));
+                int n = Math.min(rawLen - from, length - filled);
+                System.arraycopy(block, from, result, filled, n);
+                filled += n;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Computes the optimal code length of every symbol, in place over a
+     * sorted primitive array with HuffmanTree.optimalLengths, so no tree is
+     * built. If a code is longer than CanonicalCode.MAX_CODE_LENGTH, the
+     * frequencies are halved (keeping every symbol at least 1) and the
+     * lengths are computed again until all codes fit.
+     *
+     * @param freq the frequency of each symbol, indexed by unsigned byte value
+     * @return the code length of each symbol, indexed by unsigned byte value
+     */
+    static int[] buildCodeLengths(long[] freq) {
+        long[] counts = freq;
+        long[] work = new long[512];
+        int[] lengths = new int[256];
+        while (HuffmanTree.optimalLengths(counts, work, lengths) > CanonicalCode.MAX_CODE_LENGTH) {
+            if (counts == freq) {
+                counts = freq.clone();
+            }
+            for (int s = 0; s < 256; s++) {
+                if (counts[s] > 0) {
+                    counts[s] = Math.max(1, counts[s] / 2);
+                }
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Computes code lengths that are no longer than maxLength bits. When
+     * the Huffman tree already fits, its lengths are optimal and are used
+     * as they are. Otherwise the lengths come from the package-merge
+     * algorithm, which finds the optimal code among those that fit.
+     *
+     * @param freq      the frequency of each symbol, indexed by unsigned byte value
+     * @param maxLength the longest allowed code length, 8 to MAX_CODE_LENGTH
+     * @return the code length of each symbol, indexed by unsigned byte value
+     */
+    static int[] buildCodeLengths(long[] freq, int maxLength) {
+        int[] lengths = buildCodeLengths(freq);
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > maxLength) {
+                return packageMerge(freq, maxLength);
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Builds length-limited code lengths with the package-merge algorithm.
+     *
+     * @param freq      the frequency of each symbol, indexed by unsigned byte value
+     * @param maxLength the longest allowed code length, at least 8
+     * @return the code length of each symbol, indexed by unsigned byte value
+     */
+    private static int[] packageMerge(long[] freq, int maxLength) {
+        int[] lengths = new int[256];
+        packageMerge(freq, maxLength, lengths, new int[256],
+                new long[maxLength * MERGE_LIST_SIZE], new boolean[maxLength * MERGE_LIST_SIZE]);
+        return lengths;
+    }
+
+    /**
+     * Builds length-limited code lengths with the package-merge algorithm,
+     * in caller-supplied arrays so that a caller keeping them allocates
+     * nothing. Every symbol is a coin worth its frequency, and there is one
+     * list of coins per allowed bit of code length. Starting from the
+     * deepest list, neighbouring items are paired into packages that are
+     * merged, in order of weight, with the plain coins of the next list up.
+     * The cheapest 2n - 2 items of the top list form the optimal code, and
+     * a symbol's code length is the number of lists in which its coin is
+     * selected, either directly or inside a selected package. List k is
+     * kept at offset k * MERGE_LIST_SIZE of the weights and isLeaf arrays.
+     *
+     * @param freq      the frequency of each symbol, indexed by unsigned byte value
+     * @param maxLength the longest allowed code length, at least 8
+     * @param lengths   receives the code length of each symbol
+     * @param symbols   scratch space of 256 entries
+     * @param weights   scratch space of maxLength * MERGE_LIST_SIZE entries
+     * @param isLeaf    scratch space of maxLength * MERGE_LIST_SIZE entries
+     */
+    static void packageMerge(long[] freq, int maxLength, int[] lengths, int[] symbols,
+                             long[] weights, boolean[] isLeaf) {
+        // Present symbols in ascending order of frequency
+        int n = 0;
+        for (int s = 0; s < 256; s++) {
+            if (freq[s] > 0) {
+                int i = n++;
+                while (i > 0 && freq[symbols[i - 1]] > freq[s]) {
+                    symbols[i] = symbols[i - 1];
+                    i--;
+                }
+                symbols[i] = s;
+            }
+        }
+
+        Arrays.fill(lengths, 0);
+        if (n == 1) {
+            lengths[symbols[0]] = 1;
+        }
+        if (n <= 1) {
+            return;
+        }
+
+        // Build the lists from the deepest level up, keeping only the items that can be selected
+        int limit = 2 * n - 2;
+        int previousSize = 0;
+        for (int level = 0; level < maxLength; level++) {
+            int base = level * MERGE_LIST_SIZE;
+            int previous = base - MERGE_LIST_SIZE;
+            int packages = previousSize / 2;
+            int size = Math.min(limit, n + packages);
+
+            int leaf = 0;
+            int pkg = 0;
+            for (int i = 0; i < size; i++) {
+                long pkgWeight = pkg < packages
+                        ? weights[previous + 2 * pkg] + weights[previous + 2 * pkg + 1]
+                        : Long.MAX_VALUE;
+                if (leaf < n && freq[symbols[leaf]] <= pkgWeight) {
+                    weights[base + i] = freq[symbols[leaf++]];
+                    isLeaf[base + i] = true;
+                } else {
+                    weights[base + i] = pkgWeight;
+                    isLeaf[base + i] = false;
+                    pkg++;
+                }
+            }
+            previousSize = size;
+        }
+
+        // Walk back down, counting how many times each coin is selected
+        int selected = limit;
+        for (int level = maxLength - 1; level >= 0 && selected > 0; level--) {
+            int base = level * MERGE_LIST_SIZE;
+            int leaves = 0;
+            for (int i = 0; i < selected; i++) {
+                if (isLeaf[base + i]) {
+                    lengths[symbols[leaves++]]++;
+                }
+            }
+            selected = 2 * (selected - leaves);
+        }
+    }
+
+    /**
+     * BlockSource hands out the input of compress one block at a time.
+     * Blocks are either read into fresh heap arrays or, in memory-mapped
+     * mode, sliced out of chunks of the file mapped with FileChannel.map.
+     * Chunks are a whole number of blocks long, so no block spans two
+     * chunks and files larger than 2 GB can be mapped piece by piece.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    private final class BlockSource {
+        private final FileChannel ch;
+        private final InputStream stream;
+        private final long chunkSize;
+        private MappedByteBuffer chunk;
+        private long chunkStart = 0;
+        private long position = 0;
+
+        BlockSource(FileChannel ch) {
+            this.ch = ch;
+            this.stream = Channels.newInputStream(ch);
+            this.chunkSize = Math.max(1, MAP_CHUNK_SIZE / blockSize) * blockSize;
+        }
+
+        /**
+         * Returns the next block of the input.
+         *
+         * @return a buffer holding the next block, or null at the end of the input
+         * @throws IOException if an I/O error occurs
+         */
+        ByteBuffer next() throws IOException {
+            if (!memoryMapped) {
+                byte[] block = stream.readNBytes(blockSize);
+                return block.length > 0 ? ByteBuffer.wrap(block) : null;
+            }
+
+            long size = ch.size();
+            if (position >= size) {
+                return null;
+            }
+            int len = (int) Math.min(blockSize, size - position);
+            if (chunk == null || position + len > chunkStart + chunk.capacity()) {
+                chunkStart = position;
+                chunk = ch.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+            }
+
+            ByteBuffer block = chunk.slice((int) (position - chunkStart), len);
+            position += len;
+            return block;
+        }
+    }
+
+    /**
+     * BitOutputStream packs variable-length codes into bytes. Codes are
+     * shifted into a 64-bit accumulator, and every time 32 bits are ready
+     * they are stored as one big-endian word into a byte buffer. The
+     * buffer is either the caller's destination, an array or a heap or
+     * direct ByteBuffer sized in advance, or an internal buffer that is
+     * written to an OutputStream whenever it fills up. The last byte is
+     * padded with zeros if necessary.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    static class BitOutputStream implements Closeable {
+        private final OutputStream out;
+        private ByteBuffer buffer;
+        private int pos;
+        private long acc = 0;
+        private int accBits = 0;
+
+        BitOutputStream(OutputStream out) {
+            this.out = out;
+            this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+            this.pos = 0;
+        }
+
+        /**
+         * Creates a bit stream that writes straight into an array. The array
+         * must be large enough for every bit that will be written.
+         *
+         * @param dst the array receiving the packed bits
+         * @param off offset in dst of the first byte to write
+         */
+        BitOutputStream(byte[] dst, int off) {
+            this(ByteBuffer.wrap(dst), off);
+        }
+
+        /**
+         * Creates a bit stream that writes straight into a buffer, heap or
+         * direct, at absolute indices from off up to the buffer's limit. The
+         * buffer's position and byte order are left alone.
+         *
+         * @param dst the buffer receiving the packed bits
+         * @param off index in dst of the first byte to write
+         */
+        BitOutputStream(ByteBuffer dst, int off) {
+            this.out = null;
+            this.buffer = bigEndian(dst);
+            this.pos = off;
+        }
+
+        /**
+         * Points a stream that writes into a buffer at a new destination and
+         * drops any pending bits, so one stream can be reused for many
+         * payloads. Nothing is allocated when dst is big-endian.
+         *
+         * @param dst the buffer receiving the packed bits
+         * @param off index in dst of the first byte to write
+         */
+        void reset(ByteBuffer dst, int off) {
+            if (out != null) {
+                throw new IllegalStateException("Only buffer-backed bit streams can be reset");
+            }
+            this.buffer = bigEndian(dst);
+            this.pos = off;
+            this.acc = 0;
+            this.accBits = 0;
+        }
+
+        /**
+         * @return buf itself if it is big-endian, otherwise a big-endian view of it
+         */
+        private static ByteBuffer bigEndian(ByteBuffer buf) {
+            return buf.order() == ByteOrder.BIG_ENDIAN ? buf : buf.duplicate();
+        }
+
+        /**
+         * Writes a single bit (0 or 1) to the stream.
+         *
+         * @param bit the bit value to write (only the least significant bit is used)
+         * @throws IOException if an I/O error occurs
+         */
+        public void writeBit(int bit) throws IOException {
+            writeBits(bit & 1, 1);
+        }
+
+        /**
+         * Writes the low length bits of code, most significant bit first.
+         *
+         * @param code   the code bits, right-aligned; higher bits must be zero
+         * @param length the number of bits to write, 0 to 32
+         * @throws IOException if an I/O error occurs or the destination is full
+         */
+        public void writeBits(int code, int length) throws IOException {
+            acc = (acc << length) | (code & 0xFFFFFFFFL);
+            accBits += length;
+
+            if (accBits >= 32) {
+                accBits -= 32;
+                if (pos + 4 > buffer.limit()) {
+                    drain();
+                }
+                buffer.putInt(pos, (int) (acc >>> accBits));
+                pos += 4;
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the underlying OutputStream.
+         *
+         * @throws IOException if an I/O error occurs, or if this stream
+         *                     writes into a fixed destination that is full
+         */
+        private void drain() throws IOException {
+            if (out == null) {
+                throw new IOException("Bit output buffer is full");
+            }
+            out.write(buffer.array(), 0, pos);
+            pos = 0;
+        }
+
+        /**
+         * @return the index after the last byte written to the destination,
+         *         or the number of buffered bytes when writing to a stream
+         */
+        int position() {
+            return pos;
+        }
+
+        /**
+         * Flushes any remaining bits by padding the last byte with zeros up
+         * to 8 bits, then writes the buffered bytes to the underlying
+         * OutputStream, if there is one.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public void flush() throws IOException {
+            while (accBits > 0) {
+                int bits = Math.min(8, accBits);
+                accBits -= bits;
+                if (pos == buffer.limit()) {
+                    drain();
+                }
+                buffer.put(pos++, (byte) ((acc >>> accBits) << (8 - bits)));
+            }
+            if (out != null) {
+                drain();
+            }
+        }
+
+        /**
+         * Flushes any pending bits and closes the underlying OutputStream.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public void close() throws IOException {
+            flush();
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * BitInputStream reads bits from a byte buffer through a 64-bit window.
+     * The window is refilled eight bytes at a time, so a decoder can peek at
+     * up to 32 upcoming bits, decide how many of them form the next code,
+     * and consume just those. The bytes come either from a caller-supplied
+     * ByteBuffer or from an internal buffer refilled from an InputStream in
+     * large reads.
+     *
+     * Past the end of the data the window is padded with zero bits, so
+     * peeking near the end never fails. An exception is only thrown if
+     * those padding bits are actually consumed.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    static class BitInputStream implements Closeable {
+        private final InputStream in;
+        private ByteBuffer buf;
+        private long window = 0;     // Unread bits, aligned to the most significant end
+        private int bits = 0;        // Number of valid bits in the window
+        private int paddedBits = 0;  // How many of those bits are zero padding past the end
+
+        BitInputStream(InputStream in) {
+            this.in = in;
+            this.buf = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE).flip();
+        }
+
+        /**
+         * Creates a bit stream over the remaining bytes of a buffer, which
+         * may be a heap buffer or a mapped region of a file.
+         *
+         * @param buf the buffer to read bits from; its position is not changed
+         */
+        BitInputStream(ByteBuffer buf) {
+            this.in = null;
+            this.buf = buf.slice();
+        }
+
+        /**
+         * Points a stream that reads from a buffer at a new buffer and drops
+         * the bits left in the window, so one stream can be reused for many
+         * payloads. Unlike the constructor this does not take a slice, so
+         * the stream reads from the buffer's position and moves it.
+         *
+         * @param buf the buffer to read bits from
+         */
+        void reset(ByteBuffer buf) {
+            if (in != null) {
+                throw new IllegalStateException("Only buffer-backed bit streams can be reset");
+            }
+            this.buf = buf;
+            this.window = 0;
+            this.bits = 0;
+            this.paddedBits = 0;
+        }
+
+        /**
+         * Reads the next bit from the stream.
+         *
+         * @return the next bit (0 or 1)
+         * @throws IOException if the end of the stream is reached unexpectedly
+         *                     or if an I/O error occurs
+         */
+        public int readBit() throws IOException {
+            return readBits(1);
+        }
+
+        /**
+         * Reads the next n bits from the stream.
+         *
+         * @param n the number of bits to read, 1 to 32
+         * @return the bits, with the first one in the most significant position
+         * @throws IOException if the end of the stream is reached unexpectedly
+         *                     or if an I/O error occurs
+         */
+        public int readBits(int n) throws IOException {
+            int value = peekBits(n);
+            consume(n);
+            return value;
+        }
+
+        /**
+         * Returns the next n bits of the stream without consuming them. The
+         * first bit ends up in the most significant position. Bits past the
+         * end of the stream read as zero.
+         *
+         * @param n the number of bits to look at, 1 to 32
+         * @return the next n bits as an unsigned value
+         * @throws IOException if an I/O error occurs
+         */
+        public int peekBits(int n) throws IOException {
+            if (bits < n) {
+                refill();
+            }
+            return (int) (window >>> (64 - n));
+        }
+
+        /**
+         * Drops the next n bits, which must already have been peeked.
+         *
+         * @param n the number of bits to consume
+         * @throws IOException if fewer than n bits remain in the stream
+         */
+        public void consume(int n) throws IOException {
+            if (n > bits - paddedBits) {
+                throw new IOException("Unexpected end of file");
+            }
+            window <<= n;
+            bits -= n;
+        }
+
+        /**
+         * Tops up the window to at least 57 bits. While eight bytes are
+         * available they are loaded with a single read and only the whole
+         * bytes that fit are counted as consumed; the partial byte below
+         * them is the same data the next refill will load again. Near the
+         * end bytes are loaded one at a time, and once the data runs out
+         * the window is padded with zeros.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        private void refill() throws IOException {
+            if (buf.remaining() >= 8) {
+                int pos = buf.position();
+                int bytes = (63 - bits) >>> 3;
+                window |= buf.getLong(pos) >>> bits;
+                buf.position(pos + bytes);
+                bits += bytes << 3;
+                return;
+            }
+            while (bits <= 56) {
+                if (!buf.hasRemaining() && !fillBuffer()) {
+                    paddedBits += 64 - bits;
+                    bits = 64;
+                    return;
+                }
+                if (buf.remaining() >= 8) {
+                    refill();
+                    return;
+                }
+                window |= (long) (buf.get() & 0xFF) << (56 - bits);
+                bits += 8;
+            }
+        }
+
+        /**
+         * Refills the internal buffer from the underlying InputStream.
+         *
+         * @return true if more bytes are available, false at the end of the data
+         * @throws IOException if an I/O error occurs
+         */
+        private boolean fillBuffer() throws IOException {
+            if (in == null) {
+                return false;
+            }
+            int n = in.read(buf.array(), 0, buf.capacity());
+            if (n <= 0) {
+                return false;
+            }
+            buf.position(0).limit(n);
+            return true;
+        }
+
+        /**
+         * Closes the underlying InputStream, if there is one.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
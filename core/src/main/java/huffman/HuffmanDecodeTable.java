@@ -0,0 +1,206 @@
+package huffman;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * HuffmanDecodeTable is a lookup-table decoder for prefix codes. Instead of
+ * walking the Huffman tree one bit at a time, the decoder peeks a group of
+ * bits from the stream and resolves the symbol and its code length with a
+ * single array access.
+ *
+ * The root table is indexed by the next ROOT_BITS bits of the stream. Codes
+ * that are longer than that are resolved through linked sub-tables, each of
+ * which is indexed by the bits following the ones already consumed. Each
+ * entry in the flat entries array is one of:
+ * - 0: no code starts with these bits (the stream is corrupt)
+ * - a leaf: (symbol << 8) | number of bits to consume at this level
+ * - a link: LINK | (offset of sub-table << 5) | width of sub-table
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanDecodeTable {
+
+    /** Number of bits resolved by the root table in a single lookup. */
+    static final int ROOT_BITS = 11;
+
+    private static final int LINK = 0x80000000;
+
+    private static final int[] NO_ENTRIES = new int[0];
+
+    private int[] entries = NO_ENTRIES;
+    private final int[] syms = new int[256];
+    private int size;
+    private int rootBits;
+
+    /**
+     * Creates an empty table, which decodes nothing until it is rebuilt.
+     * Callers that decode many small blocks keep one table and rebuild it
+     * for each block, which allocates nothing once the entries array has
+     * grown to fit the longest codes.
+     */
+    HuffmanDecodeTable() {
+        this.rootBits = 1;
+        allocate(1 << rootBits);
+    }
+
+    /**
+     * Builds a decoding table from per-symbol codes. Codes are read most
+     * significant bit first, so the low lengths[s] bits of codes[s] hold the
+     * code of symbol s. Symbols with a length of 0 are not part of the code.
+     *
+     * @param codes   the code bits of each symbol, indexed by unsigned byte value
+     * @param lengths the code length of each symbol, indexed by unsigned byte value
+     * @return a table that decodes the given code
+     * @throws IOException if the codes do not form a valid prefix code
+     */
+    static HuffmanDecodeTable build(long[] codes, int[] lengths) throws IOException {
+        HuffmanDecodeTable table = new HuffmanDecodeTable();
+        table.rebuild(codes, lengths);
+        return table;
+    }
+
+    /**
+     * Rebuilds the table in place for a new code, as build does.
+     *
+     * @param codes   the code bits of each symbol, indexed by unsigned byte value
+     * @param lengths the code length of each symbol, indexed by unsigned byte value
+     * @throws IOException if the codes do not form a valid prefix code
+     */
+    void rebuild(long[] codes, int[] lengths) throws IOException {
+        int count = 0;
+        int maxLen = 0;
+
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > 0) {
+                if (lengths[s] > 64) {
+                    throw new IOException("Unsupported code length: " + lengths[s]);
+                }
+                syms[count++] = s;
+                maxLen = Math.max(maxLen, lengths[s]);
+            }
+        }
+
+        // Sort symbols by their left-aligned code so codes sharing a prefix are adjacent
+        for (int i = 1; i < count; i++) {
+            int s = syms[i];
+            long key = codes[s] << (64 - lengths[s]);
+            int j = i - 1;
+            while (j >= 0 && Long.compareUnsigned(codes[syms[j]] << (64 - lengths[syms[j]]), key) > 0) {
+                syms[j + 1] = syms[j];
+                j--;
+            }
+            syms[j + 1] = s;
+        }
+
+        rootBits = Math.max(1, Math.min(ROOT_BITS, maxLen));
+        size = 0;
+        allocate(1 << rootBits);
+        fill(codes, lengths, syms, 0, count, 0, 0, rootBits);
+    }
+
+    /**
+     * Fills one level of the table with the given range of sorted symbols,
+     * all of which share the first consumed bits of their code.
+     *
+     * @param codes    the code bits of each symbol
+     * @param lengths  the code length of each symbol
+     * @param syms     symbols sorted by left-aligned code
+     * @param from     first symbol (inclusive) handled at this level
+     * @param to       last symbol (exclusive) handled at this level
+     * @param consumed number of code bits already resolved by parent levels
+     * @param base     offset of this level in the entries array
+     * @param width    number of bits indexing this level
+     * @throws IOException if two codes overlap
+     */
+    private void fill(long[] codes, int[] lengths, int[] syms, int from, int to,
+                      int consumed, int base, int width) throws IOException {
+        int i = from;
+        while (i < to) {
+            int s = syms[i];
+            int rest = lengths[s] - consumed;
+            long code = codes[s];
+
+            if (rest <= width) {
+                // The code ends at this level: replicate it over all trailing bit patterns
+                int index = (int) (code & ((1L << rest) - 1)) << (width - rest);
+                int span = 1 << (width - rest);
+                for (int k = 0; k < span; k++) {
+                    if (entries[base + index + k] != 0) {
+                        throw new IOException("Invalid Huffman code table");
+                    }
+                    entries[base + index + k] = (s << 8) | rest;
+                }
+                i++;
+            } else {
+                // The code continues: group every code sharing these bits into a sub-table
+                int index = (int) ((code >>> (rest - width)) & ((1L << width) - 1));
+                int subMax = rest - width;
+                int j = i + 1;
+                while (j < to) {
+                    int r = lengths[syms[j]] - consumed;
+                    if (r <= width || (int) ((codes[syms[j]] >>> (r - width)) & ((1L << width) - 1)) != index) {
+                        break;
+                    }
+                    subMax = Math.max(subMax, r - width);
+                    j++;
+                }
+
+                if (entries[base + index] != 0) {
+                    throw new IOException("Invalid Huffman code table");
+                }
+                int subWidth = Math.min(ROOT_BITS, subMax);
+                int subBase = allocate(1 << subWidth);
+                entries[base + index] = LINK | (subBase << 5) | subWidth;
+                fill(codes, lengths, syms, i, j, consumed + width, subBase, subWidth);
+                i = j;
+            }
+        }
+    }
+
+    /**
+     * Reserves space for a level of the table at the end of the entries
+     * array, clearing whatever an earlier code left there.
+     *
+     * @param length number of entries in the level
+     * @return the offset of the new level
+     */
+    private int allocate(int length) {
+        int reused = entries.length;
+        if (size + length > entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(size + length, entries.length * 2));
+        }
+        int base = size;
+        size += length;
+        if (base < reused) {
+            Arrays.fill(entries, base, Math.min(size, reused), 0);
+        }
+        return base;
+    }
+
+    /**
+     * Decodes the next symbol from the bit stream and consumes its code.
+     *
+     * @param in the bit stream positioned at the start of a code
+     * @return the decoded symbol as an unsigned byte value
+     * @throws IOException if the bits do not match any code or the stream ends
+     */
+    int decode(HuffmanCompressor.BitInputStream in) throws IOException {
+        int width = rootBits;
+        int e = entries[in.peekBits(width)];
+
+        // Follow links into sub-tables for codes longer than the current level
+        while (e < 0) {
+            in.consume(width);
+            width = e & 0x1F;
+            e = entries[((e >>> 5) & 0x3FFFFFF) + in.peekBits(width)];
+        }
+        if (e == 0) {
+            throw new IOException("Invalid Huffman code");
+        }
+
+        in.consume(e & 0xFF);
+        return e >>> 8;
+    }
+}
@@ -0,0 +1,234 @@
+package huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * HuffmanDecoder decompresses HUF4 or HUF3 block data from one ByteBuffer
+ * into another, in the manner of java.util.zip.Inflater: the caller
+ * supplies input with setInput and calls decode with whatever output space
+ * it has, as often as needed. Headers, records and blocks may be split
+ * across any number of calls; the decoder keeps its place between them.
+ * Both buffers may be heap or direct.
+ *
+ * When a block's payload lies entirely in the caller's input buffer it is
+ * decoded straight from there, and when the output buffer has room for the
+ * whole block it is decoded straight into it. Only data that is split
+ * across calls goes through the decoder's own buffers. Input after the
+ * end marker is left unread, so other data may follow the compressed data.
+ *
+ * A decoder is not thread-safe.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanDecoder {
+
+    // What the decoder expects next
+    private static final int MAGIC = 0;
+    private static final int HEADER = 1;
+    private static final int RECORD = 2;
+    private static final int PAYLOAD = 3;
+    private static final int OUTPUT = 4;
+    private static final int END = 5;
+
+    private final HuffmanCompressor compressor;
+    private final ByteBuffer scratch = ByteBuffer.allocate(BlockIndex.FILE_HEADER_SIZE);
+    private final ByteBuffer empty = ByteBuffer.allocate(0);
+    private ByteBuffer input;
+    private ByteBuffer payload = empty;
+    private ByteBuffer block = empty;
+    private int state;
+    private long originalLen;
+    private int blockSize;
+    private int maxCodeLength;
+    private int rawLen;
+    private int mode;
+    private int payloadLen;
+    private long total;
+
+    /**
+     * Creates a decoder that decodes dictionary blocks with the dictionary
+     * of the given compressor.
+     *
+     * @param compressor the configured compressor to decode blocks with
+     */
+    public HuffmanDecoder(HuffmanCompressor compressor) {
+        this.compressor = compressor;
+        reset();
+    }
+
+    /**
+     * Sets the compressed input. The decoder reads from the buffer's
+     * position up to its limit as decode is called, advancing the position,
+     * so the buffer must not be changed until it is consumed or replaced.
+     *
+     * @param src the buffer holding the next compressed bytes
+     */
+    public void setInput(ByteBuffer src) {
+        this.input = src;
+    }
+
+    /**
+     * @return true if all input has been consumed and setInput should be
+     *         called before decode can make progress
+     */
+    public boolean needsInput() {
+        return !input.hasRemaining() && state != END;
+    }
+
+    /**
+     * @return true once the end marker has been read and every original
+     *         byte has been returned
+     */
+    public boolean finished() {
+        return state == END;
+    }
+
+    /**
+     * Decompresses as much input as possible into the output buffer.
+     * Returns when the output buffer is full, when all input has been
+     * consumed, or when the end of the compressed data is reached.
+     *
+     * @param dst the buffer receiving original bytes at its position
+     * @return the number of bytes written to dst
+     * @throws IOException if the compressed data is corrupt
+     */
+    public int decode(ByteBuffer dst) throws IOException {
+        int start = dst.position();
+        while (state != END) {
+            if (state == MAGIC) {
+                if (!fill(scratch)) {
+                    break;
+                }
+                String format = new String(scratch.array(), 0, 4);
+                if (!format.equals("HUF4") && !format.equals("HUF3")) {
+                    throw new IOException("Not a Huffman block container");
+                }
+                // HUF3 headers have no code length limit
+                scratch.limit(format.equals("HUF4") ? BlockIndex.FILE_HEADER_SIZE : BlockIndex.FILE_HEADER_SIZE - 1);
+                state = HEADER;
+            } else if (state == HEADER) {
+                if (!fill(scratch)) {
+                    break;
+                }
+                scratch.flip().position(4);
+                originalLen = scratch.getLong();
+                blockSize = scratch.getInt();
+                maxCodeLength = scratch.hasRemaining() ? scratch.get() & 0xFF : CanonicalCode.MAX_CODE_LENGTH;
+                if (originalLen < BlockIndex.UNKNOWN_LENGTH || blockSize <= 0) {
+                    throw new IOException("Corrupt block container header");
+                }
+                if (maxCodeLength < 1 || maxCodeLength > CanonicalCode.MAX_CODE_LENGTH) {
+                    throw new IOException("Invalid code length limit: " + maxCodeLength);
+                }
+                scratch.clear().limit(4);
+                state = RECORD;
+            } else if (state == RECORD) {
+                if (!fill(scratch)) {
+                    break;
+                }
+                if (scratch.limit() == 4) {
+                    rawLen = scratch.getInt(0);
+                    if (rawLen == 0) {
+                        if (originalLen != BlockIndex.UNKNOWN_LENGTH && total != originalLen) {
+                            throw new IOException("Corrupt stream: expected " + originalLen
+                                    + " bytes but blocks hold " + total);
+                        }
+                        state = END;
+                        break;
+                    }
+                    scratch.limit(BlockCodec.BLOCK_HEADER_SIZE);
+                    continue;
+                }
+                mode = scratch.get(4) & 0xFF;
+                payloadLen = scratch.getInt(5);
+                // A block is stored as it is rather than grow, so no payload exceeds the block size
+                if (rawLen < 0 || rawLen > blockSize || payloadLen < 0 || payloadLen > blockSize) {
+                    throw new IOException("Corrupt block header");
+                }
+                scratch.clear().limit(4);
+                payload.clear().limit(0);
+                state = PAYLOAD;
+            } else if (state == PAYLOAD) {
+                if (!dst.hasRemaining()) {
+                    break;
+                }
+                ByteBuffer bits;
+                if (payload.limit() == 0 && input.remaining() >= payloadLen) {
+                    // The whole payload is in the caller's buffer, so decode it in place
+                    bits = input.slice(input.position(), payloadLen);
+                    input.position(input.position() + payloadLen);
+                } else {
+                    if (payload.limit() == 0) {
+                        if (payload.capacity() < payloadLen) {
+                            payload = ByteBuffer.allocate(payloadLen);
+                        }
+                        payload.limit(payloadLen);
+                    }
+                    if (!fill(payload)) {
+                        break;
+                    }
+                    bits = payload.flip();
+                }
+                decodeBlock(bits, dst);
+            } else {
+                HuffmanEncoder.transfer(block, dst);
+                if (block.hasRemaining()) {
+                    break;
+                }
+                state = RECORD;
+            }
+        }
+        return dst.position() - start;
+    }
+
+    /**
+     * Discards all state so the decoder can start on a new compressed
+     * stream. Internal buffers are kept for reuse.
+     */
+    public void reset() {
+        input = empty;
+        scratch.clear().limit(4);
+        block.clear().limit(0);
+        state = MAGIC;
+        total = 0;
+    }
+
+    /**
+     * Decodes the current block, straight into dst if it has room for all
+     * of it and otherwise into the block buffer, from which it is copied
+     * out as space allows.
+     *
+     * @param bits the block payload
+     * @param dst  the caller's output buffer
+     * @throws IOException if the block is corrupt
+     */
+    private void decodeBlock(ByteBuffer bits, ByteBuffer dst) throws IOException {
+        total += rawLen;
+        if (dst.remaining() >= rawLen) {
+            compressor.decodeBlock(mode, bits, dst, rawLen, maxCodeLength);
+            state = RECORD;
+        } else {
+            if (block.capacity() < rawLen) {
+                block = ByteBuffer.allocate(Math.min(blockSize, Math.max(rawLen, 2 * block.capacity())));
+            }
+            block.clear();
+            compressor.decodeBlock(mode, bits, block, rawLen, maxCodeLength);
+            block.flip();
+            state = OUTPUT;
+        }
+        payload.clear().limit(0);
+    }
+
+    /**
+     * Copies input into a buffer until the buffer is full or the input runs out.
+     *
+     * @param buf the buffer to fill up to its limit
+     * @return true if the buffer is full
+     */
+    private boolean fill(ByteBuffer buf) {
+        HuffmanEncoder.transfer(input, buf);
+        return !buf.hasRemaining();
+    }
+}
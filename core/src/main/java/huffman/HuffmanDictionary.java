@@ -0,0 +1,190 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * HuffmanDictionary is a code table trained ahead of time on a sample
+ * corpus. When many small files share the same kind of content, such as
+ * JSON documents, storing a code table in every file costs a large share
+ * of the output and building a tree for each one costs time. With a
+ * dictionary, blocks refer to the shared table by its ID instead.
+ *
+ * Training counts the bytes of every sample and adds 1 to every count,
+ * so that each of the 256 byte values has a code even if the samples
+ * never contained it. The decoding table is built once, when the
+ * dictionary is created or loaded, and is only read afterwards, so a
+ * single dictionary can be shared by any number of threads.
+ *
+ * A dictionary file consists of:
+ * - A magic string "HUFD" to identify the format
+ * - The dictionary ID (int), a CRC-32 of the code length table
+ * - The code length table, as described in CanonicalCode
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanDictionary {
+
+    /** Code length limit used when training, keeping the decoding table small. */
+    static final int MAX_CODE_LENGTH = 15;
+
+    private final int id;
+    private final int[] lengths;
+    private final int[] codes = new int[256];
+    private final HuffmanDecodeTable table;
+
+    private HuffmanDictionary(int[] lengths) throws IOException {
+        long[] canonical = CanonicalCode.assignCodes(lengths);
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] == 0) {
+                throw new IOException("Dictionary has no code for byte " + s);
+            }
+            codes[s] = (int) canonical[s];
+        }
+        this.lengths = lengths;
+        this.id = checksum(lengths);
+        this.table = HuffmanDecodeTable.build(canonical, lengths);
+    }
+
+    /**
+     * Trains a dictionary on a set of sample files.
+     *
+     * @param samples files whose content is typical of the data to compress
+     * @return the trained dictionary
+     * @throws IOException if a sample cannot be read
+     */
+    public static HuffmanDictionary train(Iterable<Path> samples) throws IOException {
+        ByteHistogram histogram = new ByteHistogram();
+        byte[] buffer = new byte[HuffmanCompressor.DEFAULT_BUFFER_SIZE];
+        for (Path sample : samples) {
+            try (InputStream in = Files.newInputStream(sample)) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    histogram.merge(ByteHistogram.of(buffer, 0, n));
+                }
+            }
+        }
+
+        long[] freq = histogram.counts();
+        for (int s = 0; s < 256; s++) {
+            freq[s]++;
+        }
+        return new HuffmanDictionary(HuffmanCompressor.buildCodeLengths(freq, MAX_CODE_LENGTH));
+    }
+
+    /**
+     * Loads a dictionary saved with save.
+     *
+     * @param path the dictionary file
+     * @return the dictionary
+     * @throws IOException if the file is not a valid dictionary
+     */
+    public static HuffmanDictionary load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[4];
+            in.readFully(magic);
+            if (!new String(magic).equals("HUFD")) {
+                throw new IOException("Not a Huffman dictionary");
+            }
+            int id = in.readInt();
+            HuffmanDictionary dictionary = new HuffmanDictionary(CanonicalCode.readLengths(in));
+            if (dictionary.id != id) {
+                throw new IOException("Corrupt dictionary: ID does not match its table");
+            }
+            return dictionary;
+        }
+    }
+
+    /**
+     * Saves the dictionary to a file.
+     *
+     * @param path the file to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeBytes("HUFD");
+            out.writeInt(id);
+            CanonicalCode.writeLengths(out, lengths);
+        }
+    }
+
+    /**
+     * @return the ID that compressed blocks use to refer to this dictionary
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return the longest code length in the dictionary
+     */
+    int maxLength() {
+        int max = 0;
+        for (int length : lengths) {
+            max = Math.max(max, length);
+        }
+        return max;
+    }
+
+    /**
+     * @param freq the frequency of each byte in a block
+     * @return the number of bits the block takes with the dictionary codes
+     */
+    long codedBits(long[] freq) {
+        long bits = 0;
+        for (int s = 0; s < 256; s++) {
+            bits += freq[s] * lengths[s];
+        }
+        return bits;
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer with the dictionary codes.
+     *
+     * @param data   buffer whose remaining bytes are encoded; its position is not changed
+     * @param record the buffer receiving the bits; its position is not changed
+     * @param off    index in record at which the bits start
+     * @throws IOException if the bits do not fit in the record
+     */
+    void encode(ByteBuffer data, ByteBuffer record, int off) throws IOException {
+        HuffmanCompressor.BitOutputStream bitOut = new HuffmanCompressor.BitOutputStream(record, off);
+        for (int i = data.position(); i < data.limit(); i++) {
+            int symbol = data.get(i) & 0xFF;
+            bitOut.writeBits(codes[symbol], lengths[symbol]);
+        }
+        bitOut.flush();
+    }
+
+    /**
+     * Decodes bits written by encode.
+     *
+     * @param bits   buffer whose remaining bytes are the bits
+     * @param out    buffer receiving the original bytes at its position
+     * @param rawLen number of bytes to decode
+     * @throws IOException if the bits are corrupt
+     */
+    void decode(ByteBuffer bits, ByteBuffer out, int rawLen) throws IOException {
+        HuffmanCompressor.BitInputStream bitIn = new HuffmanCompressor.BitInputStream(bits);
+        for (int i = 0; i < rawLen; i++) {
+            out.put((byte) table.decode(bitIn));
+        }
+    }
+
+    /**
+     * @param lengths a code length table
+     * @return the CRC-32 of the table as it is stored
+     * @throws IOException if the table cannot be serialized
+     */
+    private static int checksum(int[] lengths) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CanonicalCode.writeLengths(new DataOutputStream(bytes), lengths);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        return (int) crc.getValue();
+    }
+}
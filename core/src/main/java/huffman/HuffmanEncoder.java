@@ -0,0 +1,208 @@
+package huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * HuffmanEncoder compresses from one ByteBuffer into another, in the
+ * manner of java.util.zip.Deflater: the caller supplies input with
+ * setInput, calls encode with whatever output space it has, and calls it
+ * again when it has more input or more space. All state between calls is
+ * kept in the encoder, so input and output can arrive in pieces of any
+ * size. Both buffers may be heap or direct.
+ *
+ * Whenever a whole block of input is available in the caller's buffer it
+ * is encoded straight from that buffer. Only a block that is split across
+ * calls is collected in an internal block buffer first. Likewise, a
+ * block's record is written straight into the output buffer when it has
+ * room for the largest record the block could need, and otherwise into a
+ * record buffer kept for reuse, from which later calls copy it out. The
+ * output is the
+ * same HUF4 layout HuffmanOutputStream writes, with an unknown original
+ * length, so it can be read by HuffmanDecoder, HuffmanInputStream or
+ * HuffmanCompressor.decompress.
+ *
+ * A typical loop is:
+ *
+ *     encoder.setInput(src);
+ *     encoder.finish();
+ *     while (!encoder.finished()) {
+ *         encoder.encode(dst);
+ *         // write out and clear dst
+ *     }
+ *
+ * An encoder is not thread-safe.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanEncoder {
+
+    private final HuffmanCompressor compressor;
+    private final int blockSize;
+    private final ByteBuffer empty = ByteBuffer.allocate(0);
+    private final ByteBuffer header = ByteBuffer.allocate(BlockIndex.FILE_HEADER_SIZE);
+    private final ByteBuffer endMarker = ByteBuffer.allocate(4);
+    private ByteBuffer input;
+    private ByteBuffer pending;
+    private ByteBuffer record;
+    private byte[] block;
+    private int count;
+    private boolean finishRequested;
+    private boolean endWritten;
+
+    /**
+     * Creates an encoder that codes blocks with the settings of the given
+     * compressor.
+     *
+     * @param compressor the configured compressor to code blocks with
+     */
+    public HuffmanEncoder(HuffmanCompressor compressor) {
+        this.compressor = compressor;
+        this.blockSize = compressor.blockSize();
+        reset();
+    }
+
+    /**
+     * Sets the input to compress. The encoder reads from the buffer's
+     * position up to its limit as encode is called, advancing the position,
+     * so the buffer must not be changed until it is consumed or replaced.
+     *
+     * @param src the buffer holding the next original bytes
+     */
+    public void setInput(ByteBuffer src) {
+        this.input = src;
+    }
+
+    /**
+     * Signals that the current input is the last. Once it is consumed,
+     * encode writes the final block and the end marker.
+     */
+    public void finish() {
+        finishRequested = true;
+    }
+
+    /**
+     * @return true if all input has been consumed and setInput should be
+     *         called before encode can consume more
+     */
+    public boolean needsInput() {
+        return !input.hasRemaining();
+    }
+
+    /**
+     * @return true once finish was called and the end marker has been
+     *         written out in full
+     */
+    public boolean finished() {
+        return endWritten && !pending.hasRemaining();
+    }
+
+    /**
+     * Compresses as much input as possible into the output buffer. Returns
+     * when the output buffer is full, when all input has been consumed, or
+     * when the compressed data is complete.
+     *
+     * @param dst the buffer receiving compressed bytes at its position
+     * @return the number of bytes written to dst
+     * @throws IOException if a block cannot be encoded
+     */
+    public int encode(ByteBuffer dst) throws IOException {
+        int start = dst.position();
+        while (dst.hasRemaining()) {
+            if (pending.hasRemaining()) {
+                transfer(pending, dst);
+            } else if (endWritten) {
+                break;
+            } else if (count == 0 && input.remaining() >= blockSize) {
+                // A whole block is in the caller's buffer, so encode it in place
+                ByteBuffer slice = input.slice(input.position(), blockSize);
+                input.position(input.position() + blockSize);
+                encodeBlock(slice, dst);
+            } else if (input.hasRemaining()) {
+                if (block == null) {
+                    block = new byte[blockSize];
+                }
+                int n = Math.min(input.remaining(), blockSize - count);
+                input.get(block, count, n);
+                count += n;
+                if (count == blockSize) {
+                    endBlock(dst);
+                }
+            } else if (finishRequested) {
+                if (count > 0) {
+                    endBlock(dst);
+                } else {
+                    pending = endMarker.clear();
+                    endWritten = true;
+                }
+            } else {
+                break;
+            }
+        }
+        return dst.position() - start;
+    }
+
+    /**
+     * Discards all state so the encoder can start a new compressed stream
+     * with the same settings. The block and record buffers are kept for
+     * reuse.
+     */
+    public void reset() {
+        input = empty;
+        count = 0;
+        finishRequested = false;
+        endWritten = false;
+
+        pending = header.clear();
+        pending.put("HUF4".getBytes()).putLong(BlockIndex.UNKNOWN_LENGTH).putInt(blockSize)
+                .put((byte) compressor.maxCodeLength()).flip();
+    }
+
+    /**
+     * Encodes the collected bytes as one block.
+     *
+     * @param dst the buffer receiving compressed bytes at its position
+     * @throws IOException if the block cannot be encoded
+     */
+    private void endBlock(ByteBuffer dst) throws IOException {
+        encodeBlock(ByteBuffer.wrap(block, 0, count), dst);
+        count = 0;
+    }
+
+    /**
+     * Encodes one block straight into the output buffer if it has room for
+     * any record the block could need, and otherwise into the record
+     * buffer, which becomes the pending output.
+     *
+     * @param data buffer whose remaining bytes form the block
+     * @param dst  the buffer receiving compressed bytes at its position
+     * @throws IOException if the block cannot be encoded
+     */
+    private void encodeBlock(ByteBuffer data, ByteBuffer dst) throws IOException {
+        int maxRecordLength = BlockCodec.maxRecordLength(data.remaining());
+        if (dst.remaining() >= maxRecordLength) {
+            compressor.encodeBlock(data, dst);
+            return;
+        }
+        if (record == null) {
+            record = ByteBuffer.allocate(BlockCodec.maxRecordLength(blockSize));
+        }
+        compressor.encodeBlock(data, record.clear());
+        pending = record.flip();
+    }
+
+    /**
+     * Copies as many bytes as fit from one buffer into another.
+     *
+     * @param src the buffer to copy from
+     * @param dst the buffer to copy to
+     */
+    static void transfer(ByteBuffer src, ByteBuffer dst) {
+        int n = Math.min(src.remaining(), dst.remaining());
+        int limit = src.limit();
+        src.limit(src.position() + n);
+        dst.put(src);
+        src.limit(limit);
+    }
+}
@@ -0,0 +1,229 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * HuffmanInputStream decompresses HUF4 or HUF3 block data as it is read,
+ * so a compressed stream can be consumed without staging it in a file. It
+ * reads the output of HuffmanOutputStream as well as files written by
+ * HuffmanCompressor.compress, whose block index footer is simply left
+ * unread after the end marker.
+ *
+ * Blocks are decoded lazily: a block record is read from the underlying
+ * stream only when the caller needs more bytes. Records that are already
+ * available without blocking are read ahead as well, up to two per worker,
+ * and decoded on a ForkJoinPool while the caller consumes earlier blocks.
+ * The underlying stream is never read past the end marker, so other data
+ * may follow the compressed data in it.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public class HuffmanInputStream extends FilterInputStream {
+
+    private final HuffmanCompressor compressor;
+    private final DataInputStream data;
+    private final long originalLen;
+    private final int blockSize;
+    private final int maxCodeLength;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block = new byte[0];
+    private int pos;
+    private long total;
+    private boolean endOfBlocks;
+    private boolean closed;
+
+    /**
+     * Creates a decompressing stream with the default compressor settings.
+     *
+     * @param in the stream of compressed data
+     * @throws IOException if the header is not a valid block container header
+     */
+    public HuffmanInputStream(InputStream in) throws IOException {
+        this(in, new HuffmanCompressor());
+    }
+
+    /**
+     * Creates a decompressing stream that decodes blocks with the pool and
+     * dictionary of the given compressor.
+     *
+     * @param in         the stream of compressed data
+     * @param compressor the configured compressor to decode blocks with
+     * @throws IOException if the header is not a valid block container header
+     */
+    public HuffmanInputStream(InputStream in, HuffmanCompressor compressor) throws IOException {
+        super(in);
+        this.compressor = compressor;
+        this.data = new DataInputStream(in);
+
+        byte[] magic = new byte[4];
+        data.readFully(magic);
+        String format = new String(magic);
+        if (!format.equals("HUF4") && !format.equals("HUF3")) {
+            throw new IOException("Not a Huffman block container");
+        }
+        originalLen = data.readLong();
+        blockSize = data.readInt();
+        maxCodeLength = format.equals("HUF4") ? data.readUnsignedByte() : CanonicalCode.MAX_CODE_LENGTH;
+        if (originalLen < BlockIndex.UNKNOWN_LENGTH || blockSize <= 0) {
+            throw new IOException("Corrupt block container header");
+        }
+        if (maxCodeLength < 1 || maxCodeLength > CanonicalCode.MAX_CODE_LENGTH) {
+            throw new IOException("Invalid code length limit: " + maxCodeLength);
+        }
+
+        this.pool = compressor.newPool();
+        this.maxInFlight = 2 * pool.getParallelism();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == block.length && !nextBlock()) {
+            return -1;
+        }
+        return block[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == block.length && !nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, block.length - pos);
+        System.arraycopy(block, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (pos < block.length || nextBlock())) {
+            int step = (int) Math.min(n - skipped, block.length - pos);
+            pos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    /**
+     * @return the number of decoded bytes that can be read without decoding another block
+     */
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return block.length - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Closes the underlying stream and drops any blocks read ahead.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ForkJoinTask<byte[]> task : pending) {
+            task.cancel(true);
+        }
+        pending.clear();
+        compressor.releasePool(pool);
+        in.close();
+    }
+
+    /**
+     * Makes the next decoded block current. The first record needed is read
+     * even if that blocks, further records only while the underlying stream
+     * has bytes ready.
+     *
+     * @return false at the end of the compressed data
+     * @throws IOException if a block is corrupt or an I/O error occurs
+     */
+    private boolean nextBlock() throws IOException {
+        ensureOpen();
+        while (!endOfBlocks && pending.size() < maxInFlight && (pending.isEmpty() || in.available() > 0)) {
+            readRecord();
+        }
+        if (pending.isEmpty()) {
+            return false;
+        }
+        block = HuffmanCompressor.join(pending.removeFirst());
+        pos = 0;
+        return true;
+    }
+
+    /**
+     * Reads one block record and hands it to the pool for decoding, or
+     * notes the end of the blocks.
+     *
+     * @throws IOException if the record is corrupt or an I/O error occurs
+     */
+    private void readRecord() throws IOException {
+        int rawLen = data.readInt();
+        if (rawLen == 0) {
+            endOfBlocks = true;
+            if (originalLen != BlockIndex.UNKNOWN_LENGTH && total != originalLen) {
+                throw new IOException("Corrupt stream: expected " + originalLen + " bytes but blocks hold " + total);
+            }
+            return;
+        }
+
+        int mode = data.readUnsignedByte();
+        int payloadLen = data.readInt();
+        // A block is stored as it is rather than grow, so no payload exceeds the block size
+        if (rawLen < 0 || rawLen > blockSize || payloadLen < 0 || payloadLen > blockSize) {
+            throw new IOException("Corrupt block header");
+        }
+        byte[] payload = new byte[payloadLen];
+        data.readFully(payload);
+        total += rawLen;
+
+        pending.addLast(pool.submit(() -> {
+            try {
+                byte[] raw = new byte[rawLen];
+                compressor.decodeBlock(mode, ByteBuffer.wrap(payload), ByteBuffer.wrap(raw), rawLen, maxCodeLength);
+                return raw;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    /**
+     * @throws IOException if the stream is closed
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * HuffmanOutputStream compresses everything written to it into the HUF4
+ * block format, so compression can sit inside an existing stream pipeline
+ * without staging files. Bytes are collected into blocks of the
+ * compressor's block size, and every full block is encoded on a
+ * ForkJoinPool while the caller keeps writing. Finished blocks are written
+ * to the underlying stream in order, with at most two blocks per worker in
+ * flight, just like compress.
+ *
+ * As the length of the data is not known up front, the header records an
+ * original length of -1 and no block index footer is written. The output
+ * can be read back with HuffmanInputStream or, once saved to a file, with
+ * HuffmanCompressor.decompress. The stream is complete only after finish
+ * or close has written the end marker.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public class HuffmanOutputStream extends FilterOutputStream {
+
+    /** Initial size of the block buffer, which grows up to the block size. */
+    private static final int INITIAL_BUFFER_SIZE = 1 << 13;
+
+    private final HuffmanCompressor compressor;
+    private final boolean syncFlush;
+    private final int blockSize;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+    private byte[] buffer;
+    private int count;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates a compressing stream with the default compressor settings.
+     *
+     * @param out the stream receiving the compressed data
+     * @throws IOException if the header cannot be written
+     */
+    public HuffmanOutputStream(OutputStream out) throws IOException {
+        this(out, new HuffmanCompressor(), false);
+    }
+
+    /**
+     * Creates a compressing stream. Blocks are coded with the settings of
+     * the given compressor, whose block size also sets how much data is
+     * buffered before a block is encoded.
+     *
+     * @param out        the stream receiving the compressed data
+     * @param compressor the configured compressor to code blocks with
+     * @param syncFlush  if true, flush ends the current block so that all
+     *                   data written so far can be decoded; if false, flush
+     *                   only writes blocks that are already complete
+     * @throws IOException if the header cannot be written
+     */
+    public HuffmanOutputStream(OutputStream out, HuffmanCompressor compressor, boolean syncFlush) throws IOException {
+        super(out);
+        this.compressor = compressor;
+        this.syncFlush = syncFlush;
+        this.blockSize = compressor.blockSize();
+        this.pool = compressor.newPool();
+        this.maxInFlight = 2 * pool.getParallelism();
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeBytes("HUF4");
+        header.writeLong(BlockIndex.UNKNOWN_LENGTH);
+        header.writeInt(blockSize);
+        header.writeByte(compressor.maxCodeLength());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        reserve(1);
+        buffer[count++] = (byte) b;
+        if (count == blockSize) {
+            endBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+        while (len > 0) {
+            reserve(len);
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                endBlock();
+            }
+        }
+    }
+
+    /**
+     * Writes every block that is already complete and flushes the
+     * underlying stream. With sync flushing the buffered bytes are first
+     * ended as a short block of their own, which costs some compression.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (syncFlush && !finished) {
+            endBlock();
+        }
+        while (!pending.isEmpty()) {
+            writeRecord();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the last block and the end marker without closing the
+     * underlying stream. Nothing more may be written afterwards.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        ensureOpen();
+        endBlock();
+        while (!pending.isEmpty()) {
+            writeRecord();
+        }
+        new DataOutputStream(out).writeInt(0);
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * Finishes the compressed data and closes the underlying stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            closed = true;
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(true);
+            }
+            compressor.releasePool(pool);
+            out.close();
+        }
+    }
+
+    /**
+     * Makes room in the block buffer for at least one more byte. The buffer
+     * grows as needed, so short streams do not allocate a whole block.
+     *
+     * @param len the number of bytes about to be written
+     */
+    private void reserve(int len) {
+        if (buffer == null) {
+            buffer = new byte[Math.min(blockSize, Math.max(INITIAL_BUFFER_SIZE, len))];
+        } else if (count == buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min(blockSize, Math.max(2L * buffer.length, (long) count + len)));
+        }
+    }
+
+    /**
+     * Hands the buffered bytes to the pool as one block, then writes
+     * finished blocks until the number in flight is below the limit.
+     *
+     * @throws IOException if a block fails to encode or cannot be written
+     */
+    private void endBlock() throws IOException {
+        if (count > 0) {
+            ByteBuffer block = ByteBuffer.wrap(buffer, 0, count);
+            buffer = null;
+            count = 0;
+            pending.addLast(pool.submit(() -> {
+                try {
+                    return compressor.encodeBlock(block);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        while (pending.size() >= maxInFlight) {
+            writeRecord();
+        }
+    }
+
+    /**
+     * Waits for the oldest block in flight and writes its record.
+     *
+     * @throws IOException if the block failed to encode or cannot be written
+     */
+    private void writeRecord() throws IOException {
+        out.write(HuffmanCompressor.join(pending.removeFirst()));
+    }
+
+    /**
+     * @throws IOException if the stream is closed or finished
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+    }
+}
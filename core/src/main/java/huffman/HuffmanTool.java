@@ -1,3 +1,5 @@
+package huffman;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Scanner;
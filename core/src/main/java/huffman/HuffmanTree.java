@@ -0,0 +1,115 @@
+package huffman;
+
+import java.util.Arrays;
+
+/**
+ * HuffmanTree computes optimal Huffman code lengths without building a
+ * tree. The counts are sorted into a caller-supplied long array, and the
+ * Moffat-Katajainen algorithm works over that array in place: the merge
+ * pass overwrites each weight with the index its merge went into, and two
+ * backward passes turn those indices into depths and the depths into code
+ * lengths. There are no nodes, no heap and no child links; the codes
+ * themselves come from CanonicalCode and decoding goes through
+ * HuffmanDecodeTable, so nothing ever walks a tree. Building codes over
+ * and over allocates nothing.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+public final class HuffmanTree {
+
+    private HuffmanTree() {
+    }
+
+    /**
+     * Computes optimal code lengths for a frequency table. The present
+     * symbols are sorted by frequency, packed with their symbol into one
+     * long each so that a primitive sort keeps them together, and the
+     * Moffat-Katajainen algorithm then turns the sorted weights into code
+     * lengths in place in linear time. Ties go to the lower symbol, so the
+     * lengths only depend on the frequencies. When only one symbol is
+     * present it gets a 1-bit code.
+     *
+     * @param counts  the frequency of each symbol, indexed by unsigned byte
+     *                value; each must be below 2^55
+     * @param work    scratch space of at least 512 entries
+     * @param lengths receives the code length of each symbol, 0 for absent symbols
+     * @return the longest code length
+     */
+    static int optimalLengths(long[] counts, long[] work, int[] lengths) {
+        Arrays.fill(lengths, 0);
+        int n = 0;
+        for (int s = 0; s < 256; s++) {
+            if (counts[s] > 0) {
+                work[n++] = counts[s] << 8 | s;
+            }
+        }
+        if (n == 0) {
+            return 0;
+        }
+        if (n == 1) {
+            lengths[(int) work[0] & 0xFF] = 1;
+            return 1;
+        }
+        Arrays.sort(work, 0, n);
+
+        // The weights go after the sorted keys, which still hold the symbols
+        int base = n;
+        for (int i = 0; i < n; i++) {
+            work[base + i] = work[i] >>> 8;
+        }
+
+        // Phase 1: merge as in the two-queue method, leaving each internal
+        // node's parent index in place of its weight
+        work[base] += work[base + 1];
+        int root = 0;
+        int leaf = 2;
+        for (int next = 1; next < n - 1; next++) {
+            if (leaf >= n || work[base + root] < work[base + leaf]) {
+                work[base + next] = work[base + root];
+                work[base + root++] = next;
+            } else {
+                work[base + next] = work[base + leaf++];
+            }
+            if (leaf >= n || (root < next && work[base + root] < work[base + leaf])) {
+                work[base + next] += work[base + root];
+                work[base + root++] = next;
+            } else {
+                work[base + next] += work[base + leaf++];
+            }
+        }
+
+        // Phase 2: turn parent indices into internal node depths
+        work[base + n - 2] = 0;
+        for (int next = n - 3; next >= 0; next--) {
+            work[base + next] = work[base + (int) work[base + next]] + 1;
+        }
+
+        // Phase 3: count the leaves at each depth, writing leaf depths from
+        // the heaviest symbol down
+        int avail = 1;
+        int used = 0;
+        int depth = 0;
+        root = n - 2;
+        int next = n - 1;
+        while (avail > 0) {
+            while (root >= 0 && work[base + root] == depth) {
+                used++;
+                root--;
+            }
+            while (avail > used) {
+                work[base + next--] = depth;
+                avail--;
+            }
+            avail = 2 * used;
+            depth++;
+            used = 0;
+        }
+
+        for (int i = 0; i < n; i++) {
+            lengths[(int) work[i] & 0xFF] = (int) work[base + i];
+        }
+        // The lightest symbol has the longest code
+        return (int) work[base];
+    }
+}
@@ -0,0 +1,129 @@
+package huffman;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorScan speeds up the byte loops that look at every byte of a block,
+ * the run check and the frequency count, with the incubating Vector API
+ * (jdk.incubator.vector). A whole vector of bytes, 32 with AVX2 and 64
+ * with AVX-512, is compared against one byte value in a single step.
+ *
+ * The Vector API is only there when the JVM is started with
+ * --add-modules jdk.incubator.vector. ENABLED tells whether it is, and
+ * callers only touch Lanes, the class holding the vector code, when it is
+ * true, so without the module Lanes is never loaded and the word-at-a-time
+ * and scalar loops run instead. Setting the system property
+ * huffman.vector to false turns the vector code off even when the module
+ * is present. As the API is still incubating, a JDK that has changed it
+ * also falls back rather than failing.
+ *
+ * Only heap buffers are scanned with vectors, since loading vectors from a
+ * ByteBuffer is the part of the API that has changed between releases;
+ * direct and mapped buffers keep the word-at-a-time loops.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+final class VectorScan {
+
+    /** Whether the vector code is available and turned on. */
+    static final boolean ENABLED = available();
+
+    private VectorScan() {
+    }
+
+    /**
+     * @return true if the Vector API module is present, not turned off, and
+     *         links with this JDK
+     */
+    private static boolean available() {
+        if (!Boolean.parseBoolean(System.getProperty("huffman.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            byte[] probe = new byte[2 * Lanes.LENGTH];
+            return Lanes.mismatch(probe, 0, probe.length, (byte) 0) == probe.length;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lanes holds the code that uses the Vector API, apart from VectorScan
+     * so that it is only loaded once the API is known to be present.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    static final class Lanes {
+
+        private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+        /** Number of bytes in one vector. */
+        static final int LENGTH = SPECIES.length();
+
+        private Lanes() {
+        }
+
+        /**
+         * Finds the first byte in a range of an array that differs from a
+         * value, looking only at whole vectors.
+         *
+         * @param a     the array
+         * @param from  index of the first byte to look at
+         * @param to    index after the last byte to look at
+         * @param value the byte to compare against
+         * @return the index of the first differing byte, or the index where
+         *         the whole vectors end if they all match; bytes from there
+         *         to to are left to the caller
+         */
+        static int mismatch(byte[] a, int from, int to, byte value) {
+            int i = from;
+            for (int end = to - LENGTH; i <= end; i += LENGTH) {
+                VectorMask<Byte> diff = ByteVector.fromArray(SPECIES, a, i).compare(VectorOperators.NE, value);
+                if (diff.anyTrue()) {
+                    return i + diff.firstTrue();
+                }
+            }
+            return i;
+        }
+
+        /**
+         * Counts the bytes of a range of an array into four interleaved
+         * sub-tables, one vector at a time. There is no vector form of
+         * incrementing a table at 64 different places, so a vector whose
+         * bytes are all the same is counted with a single addition, and any
+         * other vector is counted lane by lane as the scalar loop does.
+         * This makes runs and long stretches of one byte nearly free, while
+         * costing mixed data one compare per vector.
+         *
+         * @param a    the array
+         * @param from index of the first byte to count
+         * @param to   index after the last byte to count
+         * @param c    the four sub-tables of 256 counters, one after another
+         * @return the index where the whole vectors end; bytes from there to
+         *         to are left to the caller
+         */
+        static int count(byte[] a, int from, int to, long[] c) {
+            int i = from;
+            for (int end = to - LENGTH; i <= end; i += LENGTH) {
+                byte first = a[i];
+                if (ByteVector.fromArray(SPECIES, a, i).compare(VectorOperators.EQ, first).allTrue()) {
+                    c[first & 0xFF] += LENGTH;
+                    continue;
+                }
+                for (int j = i; j < i + LENGTH; j += 4) {
+                    c[a[j] & 0xFF]++;
+                    c[256 + (a[j + 1] & 0xFF)]++;
+                    c[512 + (a[j + 2] & 0xFF)]++;
+                    c[768 + (a[j + 3] & 0xFF)]++;
+                }
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * AdaptiveHuffmanTest checks single-pass round trips: empty and tiny
+ * input, input long enough for the counts to decay, data whose statistics
+ * change partway, and input that arrives a few bytes at a time and is
+ * therefore cut into many short segments.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class AdaptiveHuffmanTest {
+
+    @Test
+    void roundTripsEmptyAndTinyInput() throws IOException {
+        for (byte[] original : new byte[][] {{}, {7}, {1, 2}, "abc".getBytes()}) {
+            assertArrayEquals(original, roundTrip(new ByteArrayInputStream(original)));
+        }
+    }
+
+    @Test
+    void roundTripsLongDriftingInput() throws IOException {
+        // Text, then a long zero run, then noise: past DECAY_LIMIT symbols
+        byte[] original = new byte[3 << 20];
+        byte[] text = TestData.sample(1 << 20);
+        System.arraycopy(text, 0, original, 0, text.length);
+        byte[] noise = new byte[1 << 19];
+        new Random(3).nextBytes(noise);
+        System.arraycopy(noise, 0, original, original.length - noise.length, noise.length);
+
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        AdaptiveHuffman.compress(new ByteArrayInputStream(original), packed);
+        assertTrue(packed.size() < original.length / 2);
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        AdaptiveHuffman.decompress(new ByteArrayInputStream(packed.toByteArray()), restored);
+        assertArrayEquals(original, restored.toByteArray());
+    }
+
+    @Test
+    void roundTripsInputThatTricklesIn() throws IOException {
+        byte[] original = TestData.sample(200_000);
+        Random rnd = new Random(5);
+        InputStream trickle = new ByteArrayInputStream(original) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1 + rnd.nextInt(50)));
+            }
+
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+        assertArrayEquals(original, roundTrip(trickle));
+    }
+
+    @Test
+    void stopsAtTheEndMarkerAndRejectsOtherData() throws IOException {
+        byte[] original = TestData.sample(10_000);
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        AdaptiveHuffman.compress(new ByteArrayInputStream(original), packed);
+        packed.write(99);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(packed.toByteArray());
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        AdaptiveHuffman.decompress(in, restored);
+        assertArrayEquals(original, restored.toByteArray());
+        assertEquals(99, in.read());
+
+        byte[] notAdaptive = Arrays.copyOf(packed.toByteArray(), 20);
+        notAdaptive[3] = 'X';
+        assertThrows(IOException.class,
+                () -> AdaptiveHuffman.decompress(new ByteArrayInputStream(notAdaptive), new ByteArrayOutputStream()));
+    }
+
+    private static byte[] roundTrip(InputStream in) throws IOException {
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        AdaptiveHuffman.compress(in, packed);
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        AdaptiveHuffman.decompress(new ByteArrayInputStream(packed.toByteArray()), restored);
+        return restored.toByteArray();
+    }
+}
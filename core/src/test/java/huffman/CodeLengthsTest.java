@@ -0,0 +1,220 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * CodeLengthsTest checks the two ways code lengths are computed: the
+ * in-place Moffat-Katajainen pass in HuffmanTree against a plain Huffman
+ * build over a priority queue, and package-merge against its length limit
+ * and against the halving fallback it replaces.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class CodeLengthsTest {
+
+    @Test
+    void matchesAReferenceHuffmanBuild() {
+        Random rnd = new Random(7);
+        long[] work = new long[512];
+        int[] lengths = new int[256];
+        for (int round = 0; round < 500; round++) {
+            long[] freq = randomCounts(rnd, round);
+            int max = HuffmanTree.optimalLengths(freq, work, lengths);
+
+            assertEquals(cost(freq, referenceLengths(freq)), cost(freq, lengths), "round " + round);
+            assertComplete(freq, lengths);
+            for (int s = 0; s < 256; s++) {
+                assertEquals(freq[s] > 0, lengths[s] > 0);
+            }
+            assertEquals(longest(lengths), max);
+        }
+    }
+
+    @Test
+    void givesOneSymbolAOneBitCode() {
+        long[] freq = new long[256];
+        freq['x'] = 1000;
+        int[] lengths = new int[256];
+        assertEquals(1, HuffmanTree.optimalLengths(freq, new long[512], lengths));
+        assertEquals(1, lengths['x']);
+        assertEquals(0, HuffmanTree.optimalLengths(new long[256], new long[512], lengths));
+    }
+
+    @Test
+    void breaksTiesTheSameWayEveryTime() {
+        long[] freq = new long[256];
+        for (int s = 0; s < 256; s++) {
+            freq[s] = 10;
+        }
+        int[] lengths = new int[256];
+        HuffmanTree.optimalLengths(freq, new long[512], lengths);
+        int[] again = new int[256];
+        HuffmanTree.optimalLengths(freq.clone(), new long[512], again);
+        assertArrayEquals(lengths, again);
+        for (int s = 0; s < 256; s++) {
+            assertEquals(8, lengths[s]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {8, 9, 11, 12, 15})
+    void packageMergeKeepsToTheLimit(int limit) {
+        Random rnd = new Random(limit);
+        for (int round = 0; round < 200; round++) {
+            long[] freq = round % 2 == 0 ? fibonacciCounts(rnd.nextInt(20) + 20) : randomCounts(rnd, round);
+            int[] lengths = HuffmanCompressor.buildCodeLengths(freq, limit);
+
+            for (int s = 0; s < 256; s++) {
+                assertEquals(freq[s] > 0, lengths[s] > 0);
+            }
+            assertTrue(longest(lengths) <= limit, "longest " + longest(lengths) + " over " + limit);
+            assertComplete(freq, lengths);
+
+            // Never better than unlimited Huffman, never worse than halving the counts until they fit
+            long optimal = cost(freq, referenceLengths(freq));
+            assertTrue(cost(freq, lengths) >= optimal);
+            assertTrue(cost(freq, lengths) <= cost(freq, halvedLengths(freq, limit)));
+            if (longest(referenceLengths(freq)) <= limit) {
+                assertEquals(optimal, cost(freq, lengths));
+            }
+        }
+    }
+
+    /**
+     * @return counts over a random number of symbols, some of them with
+     *         heavily skewed weights
+     */
+    private static long[] randomCounts(Random rnd, int round) {
+        long[] freq = new long[256];
+        int symbols = 2 + rnd.nextInt(255);
+        for (int i = 0; i < symbols; i++) {
+            int s = rnd.nextInt(256);
+            freq[s] = round % 3 == 0 ? 1L << rnd.nextInt(40) : 1 + rnd.nextInt(1000);
+        }
+        if (countPresent(freq) < 2) {
+            freq[0] = 1;
+            freq[255] = 2;
+        }
+        return freq;
+    }
+
+    /**
+     * @return Fibonacci counts, whose Huffman tree is as deep as it can be
+     */
+    private static long[] fibonacciCounts(int symbols) {
+        long[] freq = new long[256];
+        long a = 1;
+        long b = 1;
+        for (int i = 0; i < symbols; i++) {
+            freq[i * 3] = a;
+            long c = a + b;
+            a = b;
+            b = c;
+        }
+        return freq;
+    }
+
+    /**
+     * @return the code lengths of a textbook Huffman build, merging the
+     *         two lightest subtrees each step and tracking the symbols below
+     */
+    private static int[] referenceLengths(long[] freq) {
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        List<List<Integer>> members = new ArrayList<>();
+        int[] lengths = new int[256];
+        for (int s = 0; s < 256; s++) {
+            if (freq[s] > 0) {
+                members.add(new ArrayList<>(List.of(s)));
+                queue.add(new long[] {freq[s], members.size() - 1});
+            }
+        }
+        if (queue.size() == 1) {
+            lengths[members.get(0).get(0)] = 1;
+        }
+        while (queue.size() > 1) {
+            long[] a = queue.poll();
+            long[] b = queue.poll();
+            List<Integer> merged = members.get((int) a[1]);
+            merged.addAll(members.get((int) b[1]));
+            for (int s : merged) {
+                lengths[s]++;
+            }
+            queue.add(new long[] {a[0] + b[0], a[1]});
+        }
+        return lengths;
+    }
+
+    /**
+     * @return lengths from halving the counts until the Huffman code fits,
+     *         the fallback that package-merge replaces
+     */
+    private static int[] halvedLengths(long[] freq, int limit) {
+        long[] counts = freq.clone();
+        int[] lengths;
+        while (longest(lengths = referenceLengths(counts)) > limit) {
+            for (int s = 0; s < 256; s++) {
+                if (counts[s] > 0) {
+                    counts[s] = Math.max(1, counts[s] / 2);
+                }
+            }
+        }
+        return lengths;
+    }
+
+    private static int longest(int[] lengths) {
+        int longest = 0;
+        for (int length : lengths) {
+            longest = Math.max(longest, length);
+        }
+        return longest;
+    }
+
+    private static long cost(long[] freq, int[] lengths) {
+        long cost = 0;
+        for (int s = 0; s < 256; s++) {
+            cost += freq[s] * lengths[s];
+        }
+        return cost;
+    }
+
+    private static int countPresent(long[] freq) {
+        int n = 0;
+        for (long f : freq) {
+            if (f > 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Checks that the lengths form a complete prefix code: the Kraft sum is
+     * exactly one when two or more symbols are present.
+     */
+    private static void assertComplete(long[] freq, int[] lengths) {
+        if (countPresent(freq) < 2) {
+            return;
+        }
+        int longest = longest(lengths);
+        assertTrue(longest < 63);
+        long kraft = 0;
+        for (int s = 0; s < 256; s++) {
+            if (lengths[s] > 0) {
+                kraft += 1L << (longest - lengths[s]);
+            }
+        }
+        assertEquals(1L << longest, kraft);
+    }
+}
@@ -0,0 +1,126 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * HuffmanArchiveTest checks creating, listing and extracting archives,
+ * and that member names which would land outside the extraction
+ * directory are refused, both when creating and when extracting.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void createsListsAndExtracts() throws IOException {
+        Path root = Files.createDirectories(dir.resolve("src"));
+        Path a = write(root.resolve("a.txt"), TestData.sample(150_000));
+        Path b = write(Files.createDirectories(root.resolve("sub")).resolve("b.bin"), new byte[0]);
+        Path c = write(root.resolve("sub/c.txt"), "one small member\n".getBytes(StandardCharsets.US_ASCII));
+
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setBlockSize(1 << 15);
+        HuffmanArchive archive = new HuffmanArchive(compressor);
+        Path file = dir.resolve("files.harc");
+        archive.create(file, root, List.of(a, b, c));
+
+        List<HuffmanArchive.Entry> entries = archive.list(file);
+        assertEquals(3, entries.size());
+        assertEquals("a.txt", entries.get(0).name());
+        assertEquals("sub/b.bin", entries.get(1).name());
+        assertEquals("sub/c.txt", entries.get(2).name());
+        long position = HuffmanArchive.ARCHIVE_HEADER_SIZE;
+        for (int i = 0; i < 3; i++) {
+            HuffmanArchive.Entry entry = entries.get(i);
+            byte[] content = Files.readAllBytes(List.of(a, b, c).get(i));
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            assertEquals(content.length, entry.size());
+            assertEquals((int) crc.getValue(), entry.crc());
+            assertEquals(position, entry.offset());
+            position += entry.compressedSize();
+        }
+
+        // A single member, then everything
+        Path single = dir.resolve("c.out");
+        archive.extract(file, "sub/c.txt", single);
+        assertArrayEquals(Files.readAllBytes(c), Files.readAllBytes(single));
+        assertThrows(FileNotFoundException.class, () -> archive.extract(file, "missing", dir.resolve("x")));
+
+        Path out = dir.resolve("out");
+        archive.extractAll(file, out);
+        for (Path member : List.of(a, b, c)) {
+            assertArrayEquals(Files.readAllBytes(member), Files.readAllBytes(out.resolve(root.relativize(member))));
+        }
+    }
+
+    @Test
+    void refusesFilesOutsideTheRoot() throws IOException {
+        Path root = Files.createDirectories(dir.resolve("root"));
+        Path outside = write(dir.resolve("outside.txt"), new byte[] {1});
+        Path inside = write(root.resolve("x.txt"), new byte[] {2});
+        HuffmanArchive archive = new HuffmanArchive(new HuffmanCompressor());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> archive.create(dir.resolve("a.harc"), root, List.of(outside)));
+        assertThrows(IllegalArgumentException.class,
+                () -> archive.create(dir.resolve("b.harc"), root, List.of(inside, inside)));
+    }
+
+    @Test
+    void refusesMembersThatEscapeOnExtract() throws IOException {
+        Path root = Files.createDirectories(dir.resolve("root/xx"));
+        Path member = write(root.resolve("evil"), "payload".getBytes(StandardCharsets.US_ASCII));
+        HuffmanArchive archive = new HuffmanArchive(new HuffmanCompressor());
+        Path file = dir.resolve("evil.harc");
+        archive.create(file, root.getParent(), List.of(member));
+
+        // Rename the member in the directory to a path of the same length that climbs out
+        byte[] bytes = Files.readAllBytes(file);
+        int at = indexOf(bytes, "xx/evil".getBytes(StandardCharsets.US_ASCII));
+        System.arraycopy("../evil".getBytes(StandardCharsets.US_ASCII), 0, bytes, at, 7);
+        Files.write(file, bytes);
+        assertEquals("../evil", archive.list(file).get(0).name());
+
+        Path out = Files.createDirectories(dir.resolve("out"));
+        IOException e = assertThrows(IOException.class, () -> archive.extractAll(file, out));
+        assertTrue(e.getMessage().contains("escapes"));
+        assertFalse(Files.exists(dir.resolve("evil")));
+    }
+
+    private static Path write(Path path, byte[] content) throws IOException {
+        return Files.write(path, content);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = bytes.length - pattern.length; i >= 0; i--) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        throw new AssertionError("pattern not found");
+    }
+}
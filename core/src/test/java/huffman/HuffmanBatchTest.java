@@ -0,0 +1,111 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * HuffmanBatchTest checks that a batch codes every file, that files which
+ * fail are each reported in their own result without stopping the
+ * others, and which executor the batch runs its files on for the JDK the
+ * tests run on.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanBatchTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    void reportsEveryFailureAndFinishesTheRest(int maxConcurrent) throws Exception {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setBlockSize(1 << 15);
+        HuffmanBatch batch = new HuffmanBatch(compressor);
+        batch.setMaxConcurrent(maxConcurrent);
+
+        // Good files with a missing one and a directory among them
+        List<HuffmanBatch.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Path input = dir.resolve("in" + i);
+            if (i == 2) {
+                Files.createDirectory(input);
+            } else if (i != 5) {
+                Files.write(input, TestData.sample(10_000 + 20_000 * i));
+            }
+            jobs.add(new HuffmanBatch.Job(input, dir.resolve("in" + i + ".huf")));
+        }
+
+        List<HuffmanBatch.Result> results = batch.compressAll(jobs);
+        assertEquals(jobs.size(), results.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            HuffmanBatch.Result result = results.get(i);
+            assertEquals(jobs.get(i), result.job());
+            if (i == 2 || i == 5) {
+                assertFalse(result.succeeded());
+                assertTrue(result.error() instanceof IOException, String.valueOf(result.error()));
+            } else {
+                assertTrue(result.succeeded(), String.valueOf(result.error()));
+                assertNull(result.error());
+                assertEquals(Files.size(jobs.get(i).input()), result.inputSize());
+                assertEquals(Files.size(jobs.get(i).output()), result.outputSize());
+            }
+        }
+        assertTrue(results.get(5).error() instanceof NoSuchFileException);
+
+        // Decompress the good files, with one of them corrupted on the way
+        List<HuffmanBatch.Job> back = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            if (i != 2 && i != 5) {
+                back.add(new HuffmanBatch.Job(jobs.get(i).output(), dir.resolve("out" + i)));
+            }
+        }
+        Files.write(back.get(1).input(), "HUF4 but nothing after it".getBytes());
+        List<HuffmanBatch.Result> restored = batch.decompressAll(back);
+        for (int i = 0; i < back.size(); i++) {
+            HuffmanBatch.Result result = restored.get(i);
+            assertEquals(i != 1, result.succeeded(), String.valueOf(result.error()));
+            if (i != 1) {
+                Path original = dir.resolve(back.get(i).output().getFileName().toString().replace("out", "in"));
+                assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(back.get(i).output()));
+            }
+        }
+        assertTrue(restored.get(1).error() instanceof IOException);
+    }
+
+    @Test
+    void usesVirtualThreadsOnlyWhereTheJdkHasThem() throws Exception {
+        ExecutorService executor = HuffmanBatch.newExecutor(2);
+        try {
+            boolean virtual = executor.submit(() -> {
+                try {
+                    Method isVirtual = Thread.class.getMethod("isVirtual");
+                    return (Boolean) isVirtual.invoke(Thread.currentThread());
+                } catch (NoSuchMethodException e) {
+                    return false;
+                }
+            }).get();
+            assertEquals(Runtime.version().feature() >= 21, virtual);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
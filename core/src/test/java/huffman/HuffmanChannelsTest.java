@@ -0,0 +1,110 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * HuffmanChannelsTest checks the channel adapters against a target that
+ * behaves like a non-blocking channel, taking a few bytes at a time and
+ * sometimes none, and checks that closing a compressing channel whose
+ * target is not ready reports it instead of spinning.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanChannelsTest {
+
+    @Test
+    void roundTripsThroughAStallingTarget() throws IOException {
+        byte[] original = TestData.sample(400_000);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setBlockSize(1 << 16);
+        StallingChannel target = new StallingChannel();
+        WritableByteChannel ch = HuffmanChannels.compressing(target, compressor);
+
+        ByteBuffer src = ByteBuffer.wrap(original);
+        while (src.hasRemaining()) {
+            int limit = Math.min(src.limit(), src.position() + 1000);
+            ByteBuffer piece = src.duplicate().limit(limit);
+            ch.write(piece);
+            src.position(piece.position());
+            target.ready = true;
+        }
+
+        // Close reports a target that is not ready, and carries on when called again
+        int attempts = 0;
+        while (ch.isOpen()) {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                assertTrue(ch.isOpen());
+                assertThrows(ClosedChannelException.class, () -> ch.write(ByteBuffer.allocate(1)));
+                attempts++;
+            }
+            target.ready = true;
+        }
+        assertTrue(attempts > 0);
+        assertTrue(target.closed);
+
+        ReadableByteChannel in = HuffmanChannels.decompressing(
+                Channels.newChannel(new ByteArrayInputStream(target.bytes.toByteArray())), compressor);
+        ByteBuffer restored = ByteBuffer.allocate(original.length + 1);
+        while (in.read(restored) >= 0) {
+            assertTrue(restored.hasRemaining());
+        }
+        in.close();
+        assertFalse(in.isOpen());
+        assertArrayEquals(original, Arrays.copyOf(restored.array(), restored.position()));
+    }
+
+    /**
+     * StallingChannel takes at most 100 bytes per write, and after each
+     * such write takes nothing until it is made ready again, as a full
+     * socket buffer would.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    private static final class StallingChannel implements WritableByteChannel {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean ready = true;
+        boolean closed;
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (!ready) {
+                return 0;
+            }
+            ready = false;
+            int n = Math.min(100, src.remaining());
+            for (int i = 0; i < n; i++) {
+                bytes.write(src.get());
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
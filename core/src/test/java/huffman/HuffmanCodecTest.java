@@ -0,0 +1,89 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * HuffmanCodecTest checks in-memory round trips with HuffmanCodec, and
+ * that maxCompressedLength really bounds the output: for incompressible
+ * input, for a single repeated byte, for empty input, and for a
+ * destination array of exactly that size.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanCodecTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 255, 256, 4096, 100_000})
+    void staysWithinTheBound(int len) throws IOException {
+        HuffmanCodec codec = new HuffmanCodec();
+        Random rnd = new Random(len);
+        byte[] random = new byte[len];
+        rnd.nextBytes(random);
+        byte[] single = new byte[len];
+        Arrays.fill(single, (byte) 'z');
+        byte[] text = TestData.sample(Math.max(len, 1));
+
+        for (byte[] src : new byte[][] {random, single, Arrays.copyOf(text, len)}) {
+            byte[] dst = new byte[HuffmanCodec.maxCompressedLength(len)];
+            int n = codec.compress(src, 0, len, dst, 0);
+            assertTrue(n <= dst.length);
+            assertEquals(len, HuffmanCodec.decompressedLength(dst, 0));
+
+            byte[] restored = new byte[len];
+            assertEquals(len, codec.decompress(dst, 0, n, restored, 0));
+            assertArrayEquals(src, restored);
+        }
+        assertEquals(len + BlockCodec.BLOCK_HEADER_SIZE, HuffmanCodec.maxCompressedLength(len));
+    }
+
+    @Test
+    void compressesTextAndReusesItsTables() throws IOException {
+        HuffmanCodec codec = new HuffmanCodec();
+        byte[] dst = new byte[HuffmanCodec.maxCompressedLength(50_000) + 10];
+        byte[] restored = new byte[50_000 + 10];
+        for (int round = 0; round < 20; round++) {
+            byte[] src = TestData.sample(20_000 + round * 1000);
+            int n = codec.compress(src, 3, src.length - 3, dst, 10);
+            assertTrue(n < src.length);
+            int m = codec.decompress(dst, 10, n, restored, 5);
+            assertArrayEquals(Arrays.copyOfRange(src, 3, src.length), Arrays.copyOfRange(restored, 5, 5 + m));
+        }
+    }
+
+    @Test
+    void decodesBlocksTheFileCompressorWrote() throws IOException {
+        byte[] src = TestData.sample(30_000);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setMaxCodeLength(CanonicalCode.MAX_CODE_LENGTH);
+        byte[] record = compressor.encodeBlock(ByteBuffer.wrap(src));
+
+        byte[] restored = new byte[src.length];
+        new HuffmanCodec().decompress(record, 0, record.length, restored, 0);
+        assertArrayEquals(src, restored);
+    }
+
+    @Test
+    void rejectsBadLengthsAndShortArrays() {
+        assertThrows(IllegalArgumentException.class, () -> HuffmanCodec.maxCompressedLength(-1));
+        assertThrows(IllegalArgumentException.class, () -> HuffmanCodec.maxCompressedLength(Integer.MAX_VALUE));
+        HuffmanCodec codec = new HuffmanCodec();
+        byte[] random = new byte[1000];
+        new Random(1).nextBytes(random);
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> codec.compress(random, 0, random.length, new byte[random.length], 0));
+        assertThrows(IOException.class, () -> HuffmanCodec.decompressedLength(new byte[4], 0));
+    }
+}
@@ -0,0 +1,99 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * HuffmanDictionaryTest checks training, saving and loading a dictionary,
+ * that small files compressed with it refer to it instead of carrying a
+ * table, and that they are refused when decompressed without it or with
+ * a different one.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanDictionaryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void savesAndLoadsTheSameTable() throws IOException {
+        HuffmanDictionary dictionary = HuffmanDictionary.train(samples("json", 20));
+        Path file = dir.resolve("json.dict");
+        dictionary.save(file);
+        HuffmanDictionary loaded = HuffmanDictionary.load(file);
+        assertEquals(dictionary.id(), loaded.id());
+        assertTrue(loaded.maxLength() <= HuffmanDictionary.MAX_CODE_LENGTH);
+
+        // A table that no longer matches its ID is refused
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> HuffmanDictionary.load(file));
+        Files.write(file, "HUFX".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> HuffmanDictionary.load(file));
+    }
+
+    @Test
+    void codesSmallFilesAgainstTheDictionary() throws IOException {
+        HuffmanDictionary dictionary = HuffmanDictionary.train(samples("train", 30));
+        Path raw = samples("doc", 1).get(0);
+        Path packed = dir.resolve("doc.huf");
+        Path restored = dir.resolve("doc.out");
+
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setDictionary(dictionary);
+        compressor.compress(raw, packed);
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(packed));
+        assertEquals(BlockCodec.MODE_DICTIONARY, file.get(BlockIndex.FILE_HEADER_SIZE + 4));
+        assertEquals(dictionary.id(), file.getInt(BlockIndex.FILE_HEADER_SIZE + BlockCodec.BLOCK_HEADER_SIZE));
+
+        compressor.decompress(packed, restored);
+        assertArrayEquals(Files.readAllBytes(raw), Files.readAllBytes(restored));
+
+        // Without the dictionary, or with another one, the block cannot be decoded
+        IOException missing = assertThrows(IOException.class,
+                () -> new HuffmanCompressor().decompress(packed, restored));
+        assertTrue(missing.getMessage().contains(String.format("%08x", dictionary.id())));
+        HuffmanDictionary other = HuffmanDictionary.train(List.of(Files.write(dir.resolve("other"),
+                "completely different content 0123456789".repeat(50).getBytes(StandardCharsets.US_ASCII))));
+        assertNotEquals(dictionary.id(), other.id());
+        HuffmanCompressor wrong = new HuffmanCompressor();
+        wrong.setDictionary(other);
+        assertThrows(IOException.class, () -> wrong.decompress(packed, restored));
+    }
+
+    /**
+     * Writes small JSON documents that share their keys and layout.
+     */
+    private List<Path> samples(String prefix, int count) throws IOException {
+        Random rnd = new Random(prefix.hashCode());
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder json = new StringBuilder("[");
+            for (int j = 0; j < 20; j++) {
+                json.append(String.format("{\"id\":%d,\"name\":\"user%d\",\"active\":%b,\"score\":%d.%02d},",
+                        rnd.nextInt(100000), rnd.nextInt(1000), rnd.nextBoolean(), rnd.nextInt(100), rnd.nextInt(100)));
+            }
+            json.setCharAt(json.length() - 1, ']');
+            files.add(Files.writeString(dir.resolve(prefix + i + ".json"), json));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,164 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * HuffmanEncoderTest checks that HuffmanEncoder and HuffmanDecoder keep
+ * their place when input and output arrive in pieces far smaller than a
+ * block, down to single bytes, with heap and direct buffers, and that
+ * their output matches what the file compressor reads and writes.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanEncoderTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @CsvSource({"1, 1, false", "7, 3, false", "13, 64, true", "4096, 5, true", "100000, 100000, false"})
+    void roundTripsThroughSmallBuffers(int inChunk, int outChunk, boolean direct) throws IOException {
+        byte[] original = TestData.sample(300_000);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setBlockSize(1 << 16);
+
+        byte[] packed = encode(compressor, original, inChunk, outChunk, direct);
+        assertArrayEquals(original, decode(compressor, packed, outChunk, inChunk, direct));
+
+        // The output is an ordinary HUF4 stream
+        Path file = dir.resolve("chunked.huf");
+        Path restored = dir.resolve("chunked.out");
+        Files.write(file, packed);
+        compressor.decompress(file, restored);
+        assertArrayEquals(original, Files.readAllBytes(restored));
+    }
+
+    @Test
+    void decodesWhatCompressWrote() throws IOException {
+        byte[] original = TestData.sample(200_000);
+        Path raw = dir.resolve("raw.bin");
+        Path packed = dir.resolve("raw.huf");
+        Files.write(raw, original);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.compress(raw, packed);
+
+        assertArrayEquals(original, decode(compressor, Files.readAllBytes(packed), 11, 17, false));
+    }
+
+    @Test
+    void handlesEmptyInputAndReset() throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        HuffmanEncoder encoder = new HuffmanEncoder(compressor);
+        byte[] empty = encode(encoder, new byte[0], 1, 1, false);
+        assertEquals(0, decode(compressor, empty, 1, 1, false).length);
+
+        // After reset the same encoder starts a fresh stream
+        encoder.reset();
+        byte[] original = TestData.sample(1000);
+        assertArrayEquals(original, decode(compressor, encode(encoder, original, 100, 9, false), 9, 100, false));
+    }
+
+    @Test
+    void leavesDataAfterTheEndMarkerUnread() throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        byte[] packed = encode(compressor, TestData.sample(5000), 5000, 5000, false);
+        byte[] trailing = {1, 2, 3};
+        ByteBuffer src = ByteBuffer.allocate(packed.length + trailing.length).put(packed).put(trailing).flip();
+
+        HuffmanDecoder decoder = new HuffmanDecoder(compressor);
+        decoder.setInput(src);
+        decoder.decode(ByteBuffer.allocate(5000));
+        assertTrue(decoder.finished());
+        assertFalse(decoder.needsInput());
+        assertEquals(trailing.length, src.remaining());
+    }
+
+    /**
+     * Compresses data with a new encoder.
+     */
+    static byte[] encode(HuffmanCompressor compressor, byte[] data, int inChunk, int outChunk, boolean direct)
+            throws IOException {
+        return encode(new HuffmanEncoder(compressor), data, inChunk, outChunk, direct);
+    }
+
+    /**
+     * Compresses data, handing the encoder at most inChunk bytes of input
+     * and outChunk bytes of output space at a time.
+     */
+    static byte[] encode(HuffmanEncoder encoder, byte[] data, int inChunk, int outChunk, boolean direct)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer src = allocate(inChunk, direct);
+        ByteBuffer dst = allocate(outChunk, direct);
+        int fed = 0;
+        src.flip();
+        encoder.setInput(src);
+        while (!encoder.finished()) {
+            if (encoder.needsInput() && fed < data.length) {
+                int n = Math.min(inChunk, data.length - fed);
+                src.clear().put(data, fed, n).flip();
+                fed += n;
+                if (fed == data.length) {
+                    encoder.finish();
+                }
+            } else if (fed == data.length) {
+                encoder.finish();
+            }
+            dst.clear();
+            encoder.encode(dst);
+            dst.flip();
+            while (dst.hasRemaining()) {
+                out.write(dst.get());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses data, handing the decoder at most inChunk bytes of input
+     * and outChunk bytes of output space at a time.
+     */
+    static byte[] decode(HuffmanCompressor compressor, byte[] packed, int inChunk, int outChunk, boolean direct)
+            throws IOException {
+        HuffmanDecoder decoder = new HuffmanDecoder(compressor);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer src = allocate(inChunk, direct).flip();
+        ByteBuffer dst = allocate(outChunk, direct);
+        int fed = 0;
+        decoder.setInput(src);
+        while (!decoder.finished()) {
+            if (decoder.needsInput()) {
+                assertTrue(fed < packed.length, "decoder wants input past the end");
+                int n = Math.min(inChunk, packed.length - fed);
+                src.clear().put(packed, fed, n).flip();
+                fed += n;
+            }
+            dst.clear();
+            decoder.decode(dst);
+            dst.flip();
+            while (dst.hasRemaining()) {
+                out.write(dst.get());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer allocate(int size, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+}
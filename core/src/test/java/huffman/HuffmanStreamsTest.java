@@ -0,0 +1,149 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * HuffmanStreamsTest checks HuffmanOutputStream and HuffmanInputStream:
+ * round trips written a byte or a slice at a time, the unknown length in
+ * the header, sync flushing, and data following the end marker.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class HuffmanStreamsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsInPieces() throws IOException {
+        byte[] original = TestData.sample(500_000);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setBlockSize(1 << 16);
+
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(packed, compressor, false)) {
+            for (int i = 0; i < 1000; i++) {
+                out.write(original[i]);
+            }
+            for (int i = 1000; i < original.length; i += 7777) {
+                out.write(original, i, Math.min(7777, original.length - i));
+            }
+        }
+
+        // The length is not known up front, so the header records -1
+        ByteBuffer header = ByteBuffer.wrap(packed.toByteArray());
+        assertEquals("HUF4", new String(packed.toByteArray(), 0, 4));
+        assertEquals(-1, header.getLong(4));
+        assertEquals(1 << 16, header.getInt(12));
+
+        try (HuffmanInputStream in = new HuffmanInputStream(new ByteArrayInputStream(packed.toByteArray()),
+                compressor)) {
+            assertArrayEquals(original, readAll(in, 3333));
+            assertEquals(-1, in.read());
+        }
+
+        // The same bytes are a valid file for the file decompressor
+        Path file = dir.resolve("stream.huf");
+        Path restored = dir.resolve("stream.out");
+        Files.write(file, packed.toByteArray());
+        compressor.decompress(file, restored);
+        assertArrayEquals(original, Files.readAllBytes(restored));
+    }
+
+    @Test
+    void syncFlushMakesEverythingWrittenDecodable() throws IOException {
+        byte[] original = TestData.sample(100_000);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(packed, compressor, true);
+
+        int written = 0;
+        for (int part : new int[] {1, 5000, 30_000, 64_999}) {
+            out.write(original, written, part);
+            written += part;
+            out.flush();
+
+            // Everything written so far decodes, though the end marker is still to come
+            InputStream partial = new HuffmanInputStream(new ByteArrayInputStream(packed.toByteArray()), compressor);
+            assertArrayEquals(Arrays.copyOf(original, written), partial.readNBytes(written));
+            assertThrows(EOFException.class, partial::read);
+        }
+        out.close();
+        assertThrows(IOException.class, () -> out.write(1));
+        assertArrayEquals(original, readAll(new HuffmanInputStream(new ByteArrayInputStream(packed.toByteArray())),
+                4096));
+    }
+
+    @Test
+    void plainFlushOnlyWritesCompleteBlocks() throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        HuffmanOutputStream out = new HuffmanOutputStream(packed, compressor, false);
+        out.write(TestData.sample(1000));
+        out.flush();
+        assertEquals(BlockIndex.FILE_HEADER_SIZE, packed.size());
+        out.finish();
+        assertEquals(1000, readAll(new HuffmanInputStream(new ByteArrayInputStream(packed.toByteArray())), 10).length);
+    }
+
+    @Test
+    void leavesDataAfterTheEndMarkerUnread() throws IOException {
+        byte[] original = TestData.sample(20_000);
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(packed)) {
+            out.write(original);
+        }
+        packed.write(new byte[] {42, 43});
+
+        InputStream raw = new ByteArrayInputStream(packed.toByteArray());
+        HuffmanInputStream in = new HuffmanInputStream(raw);
+        assertArrayEquals(original, readAll(in, 1000));
+        assertEquals(42, raw.read());
+        assertEquals(43, raw.read());
+    }
+
+    @Test
+    void readsCompressedFilesWithAFooter() throws IOException {
+        byte[] original = TestData.sample(300_000);
+        Path raw = dir.resolve("file.bin");
+        Path packed = dir.resolve("file.huf");
+        Files.write(raw, original);
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setBlockSize(1 << 15);
+        compressor.compress(raw, packed);
+
+        try (HuffmanInputStream in = new HuffmanInputStream(Files.newInputStream(packed), compressor)) {
+            assertEquals(100, in.skip(100));
+            assertArrayEquals(Arrays.copyOfRange(original, 100, original.length), readAll(in, 65536));
+        }
+    }
+
+    /**
+     * Reads a stream to its end in reads of at most chunk bytes.
+     */
+    private static byte[] readAll(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[chunk];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,99 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * LargeFileTest checks that files past 2 GiB compress and decompress with
+ * 64-bit offsets throughout. The input is a sparse 3 GiB file, so it takes
+ * no disk space of its own: it reads as zeros apart from a few text
+ * markers, one of them straddling Integer.MAX_VALUE and the others above
+ * it. The zero blocks are coded as runs, which keeps the compressed file
+ * small and the test quick, while the markers make some of the blocks
+ * past 2 GiB real Huffman blocks.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class LargeFileTest {
+
+    private static final long SIZE = 3L << 30;
+
+    private static final long[] MARKERS = {
+        0, Integer.MAX_VALUE - 1000L, (1L << 31) + 123_456_789L, SIZE - 5000
+    };
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void roundTripsPast2GiB(boolean memoryMapped) throws IOException {
+        Path raw = dir.resolve("sparse.bin");
+        Path packed = dir.resolve("sparse.huf");
+        Path restored = dir.resolve("sparse.out");
+        byte[] marker = marker();
+        try (RandomAccessFile file = new RandomAccessFile(raw.toFile(), "rw")) {
+            file.setLength(SIZE);
+            for (long position : MARKERS) {
+                file.seek(position);
+                file.write(marker);
+            }
+        }
+
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        compressor.setMemoryMapped(memoryMapped);
+        compressor.compress(raw, packed);
+
+        try (FileChannel ch = FileChannel.open(packed, StandardOpenOption.READ)) {
+            BlockIndex index = BlockIndex.read(ch);
+            assertEquals(SIZE, index.originalLen);
+            int last = index.blockCount() - 1;
+            assertEquals(SIZE, index.rawOffset(last) + index.rawLength(last));
+            assertTrue(index.rawOffset(last) > Integer.MAX_VALUE);
+            assertTrue(index.rawOffset(index.blockAt(MARKERS[2])) > Integer.MAX_VALUE);
+        }
+
+        // Every marker, then a range across Integer.MAX_VALUE and one running from zeros into a marker
+        for (long position : MARKERS) {
+            assertArrayEquals(marker, compressor.readRange(packed, position, marker.length));
+        }
+        int into = (int) (Integer.MAX_VALUE - 10L - MARKERS[1]);
+        assertArrayEquals(Arrays.copyOfRange(marker, into, into + 20),
+                compressor.readRange(packed, Integer.MAX_VALUE - 10L, 20));
+        byte[] straddle = compressor.readRange(packed, MARKERS[2] - 8, 16);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(0, straddle[i]);
+            assertEquals(marker[i], straddle[8 + i]);
+        }
+
+        compressor.decompress(packed, restored);
+        assertEquals(SIZE, Files.size(restored));
+        assertEquals(-1, Files.mismatch(raw, restored));
+    }
+
+    /**
+     * @return a few kilobytes of text, enough to make its blocks Huffman coded
+     */
+    private static byte[] marker() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 4000; i++) {
+            text.append("line ").append(i).append(" of the marker past two gigabytes\n");
+        }
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
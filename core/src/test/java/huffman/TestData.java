@@ -0,0 +1,37 @@
+package huffman;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * TestData generates the inputs the round-trip tests share: text with a
+ * run of zeros and a stretch of random bytes, so that the blocks of one
+ * input come out in several modes.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * @param size the number of bytes
+     * @return text, then zeros from a third of the way in, then random
+     *         bytes over the last sixth; the same for the same size
+     */
+    static byte[] sample(int size) {
+        byte[] data = new byte[size];
+        Random rnd = new Random(size);
+        byte[] words = "the quick brown fox jumps over the lazy dog while huffman codes the text\n".getBytes();
+        for (int i = 0; i < size; i++) {
+            data[i] = words[(i * 7 + rnd.nextInt(3)) % words.length];
+        }
+        Arrays.fill(data, size / 3, size / 3 + size / 5, (byte) 0);
+        byte[] noise = new byte[size / 6];
+        rnd.nextBytes(noise);
+        System.arraycopy(noise, 0, data, size - noise.length, noise.length);
+        return data;
+    }
+}
@@ -0,0 +1,84 @@
+package huffman;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * VectorScanTest checks that the run check and the frequency count give
+ * the same answers with and without the Vector API, at every alignment
+ * and with the mismatch in every lane, and that the vector code is only
+ * enabled when the JVM has the module. The build runs these tests twice,
+ * with the module and without it.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+class VectorScanTest {
+
+    @Test
+    void isEnabledOnlyWithTheModule() {
+        boolean present = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        if (Boolean.getBoolean("huffman.test.withoutVectorModule")) {
+            assertFalse(present);
+        }
+        assertEquals(present, VectorScan.ENABLED);
+
+        // Whichever code runs, the public paths give the right answer
+        byte[] zeros = new byte[1000];
+        assertEquals(1000, BlockCodec.runLength(ByteBuffer.wrap(zeros)));
+        assertEquals(1000, ByteHistogram.of(ByteBuffer.wrap(zeros)).counts()[0]);
+    }
+
+    @Test
+    void findsTheEndOfARunInEveryLane() {
+        byte[] data = new byte[300];
+        for (int from = 0; from < 70; from++) {
+            for (int end = from + 1; end <= data.length; end++) {
+                Arrays.fill(data, (byte) 'a');
+                if (end < data.length) {
+                    data[end] = 'b';
+                }
+                ByteBuffer buf = ByteBuffer.wrap(data, from, data.length - from);
+                int expected = end - from;
+                assertEquals(expected, BlockCodec.runLength(buf, false));
+                assertEquals(expected, BlockCodec.runLength(buf, VectorScan.ENABLED));
+                assertEquals(expected, BlockCodec.runLength(buf.slice(), VectorScan.ENABLED));
+            }
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(100);
+        assertEquals(100, BlockCodec.runLength(direct, VectorScan.ENABLED));
+        assertEquals(0, BlockCodec.runLength(ByteBuffer.allocate(0), VectorScan.ENABLED));
+    }
+
+    @Test
+    void countsTheSameWithAndWithoutVectors() {
+        Random rnd = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            byte[] data = new byte[rnd.nextInt(5000)];
+            // Random bytes with runs of every length, so some vectors are uniform and some are not
+            for (int i = 0; i < data.length; ) {
+                int run = Math.min(data.length - i, 1 + rnd.nextInt(round % 2 == 0 ? 4 : 300));
+                Arrays.fill(data, i, i + run, (byte) rnd.nextInt(round % 3 == 0 ? 2 : 256));
+                i += run;
+            }
+            int off = data.length == 0 ? 0 : rnd.nextInt(Math.min(data.length, 70));
+            ByteBuffer buf = ByteBuffer.wrap(data, off, data.length - off).slice();
+
+            long[] expected = new long[256];
+            for (int i = off; i < data.length; i++) {
+                expected[data[i] & 0xFF]++;
+            }
+            assertArrayEquals(expected, ByteHistogram.of(buf, false).counts());
+            ByteHistogram vectorized = ByteHistogram.of(buf, VectorScan.ENABLED);
+            assertArrayEquals(expected, vectorized.counts());
+            assertEquals(data.length - off, vectorized.total());
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HuffmanBenchmark times the hot paths of the compressor with JMH so
+ * changes can be checked for speed regressions before they are rolled
+ * out. Build the benchmarks jar and run it, adding the GC profiler to see
+ * the bytes allocated per operation:
+ *
+ *     mvn -B package
+ *     java -jar jmh/target/benchmarks.jar HuffmanBenchmark -prof gc
+ *
+ * Every benchmark runs for each combination of the size and kind
+ * parameters. Sizes such as 1K, 64K, 16M or 1G are given with -p
+ * size=...; the default list runs up to 1G, for which the forked JVM gets
+ * a 4 GB heap. It also gets the Vector API module, so the compressor runs
+ * as it does with VectorScan enabled. Data kinds are any of text, random,
+ * skewed and single, as described in generate. The benchmarks cover
+ * counting byte frequencies, computing optimal code lengths, computing
+ * length-limited code lengths with package-merge, writing bits, the
+ * table-driven decode loop, and a full compress and decompress through
+ * files.
+ *
+ * Results are throughputs. The benchmarks that go over the data also
+ * report a secondary result, megabytes, which counts the input megabytes
+ * (10^6 bytes) processed; JMH divides it by the time like the operations,
+ * so although it is printed as ops/s it reads directly as MB/s.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class HuffmanBenchmark {
+
+    /** Codes limited to this length take the package-merge path. */
+    private static final int LIMITED_LENGTH = 11;
+
+    @Param({"1K", "64K", "1M", "16M", "1G"})
+    public String size;
+
+    @Param({"text", "random", "skewed", "single"})
+    public String kind;
+
+    private byte[] data;
+    private ByteBuffer buf;
+    private long[] freq;
+    private int[] lengths;
+    private int[] codes;
+    private double megabytes;
+    private long[] work;
+    private int[] treeLengths;
+    private int[] mergeSymbols;
+    private long[] mergeWeights;
+    private boolean[] mergeLeaves;
+    private byte[] bits;
+    private HuffmanDecodeTable table;
+    private byte[] decoded;
+
+    private HuffmanCompressor compressor;
+    private Path raw;
+    private Path packed;
+    private Path restored;
+
+    /**
+     * Generates the input and everything the benchmarks start from: its
+     * counts, codes, packed bits and decoding table, and the files for the
+     * end-to-end cases.
+     *
+     * @throws IOException if the temporary files cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        int n = parseSize(size);
+        megabytes = n / 1e6;
+        data = generate(kind, n, new Random(n));
+        buf = ByteBuffer.wrap(data);
+
+        freq = ByteHistogram.of(buf).counts();
+        lengths = HuffmanCompressor.buildCodeLengths(freq);
+        long[] canonical = CanonicalCode.assignCodes(lengths);
+        codes = new int[256];
+        long totalBits = 0;
+        for (int s = 0; s < 256; s++) {
+            codes[s] = (int) canonical[s];
+            totalBits += freq[s] * lengths[s];
+        }
+        work = new long[512];
+        treeLengths = new int[256];
+        mergeSymbols = new int[256];
+        mergeWeights = new long[LIMITED_LENGTH * HuffmanCompressor.MERGE_LIST_SIZE];
+        mergeLeaves = new boolean[LIMITED_LENGTH * HuffmanCompressor.MERGE_LIST_SIZE];
+        bits = new byte[(int) (totalBits / 8) + 8];
+        writeBits(new Bytes());
+        table = HuffmanDecodeTable.build(canonical, lengths);
+        decoded = new byte[n];
+
+        compressor = new HuffmanCompressor();
+        raw = Files.createTempFile("huffbench", ".bin");
+        packed = Files.createTempFile("huffbench", ".huf");
+        restored = Files.createTempFile("huffbench", ".out");
+        Files.write(raw, data);
+        compressor.compress(raw, packed);
+    }
+
+    /**
+     * Deletes the temporary files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(raw);
+        Files.deleteIfExists(packed);
+        Files.deleteIfExists(restored);
+    }
+
+    @Benchmark
+    public long histogram(Bytes bytes) {
+        bytes.megabytes += megabytes;
+        return ByteHistogram.of(buf).total();
+    }
+
+    @Benchmark
+    public int buildTree() {
+        return HuffmanTree.optimalLengths(freq, work, treeLengths);
+    }
+
+    @Benchmark
+    public int[] packageMerge() {
+        HuffmanCompressor.packageMerge(freq, LIMITED_LENGTH, treeLengths, mergeSymbols, mergeWeights, mergeLeaves);
+        return treeLengths;
+    }
+
+    @Benchmark
+    public byte[] writeBits(Bytes bytes) throws IOException {
+        bytes.megabytes += megabytes;
+        HuffmanCompressor.BitOutputStream out = new HuffmanCompressor.BitOutputStream(bits, 0);
+        for (byte b : data) {
+            out.writeBits(codes[b & 0xFF], lengths[b & 0xFF]);
+        }
+        out.flush();
+        return bits;
+    }
+
+    @Benchmark
+    public byte[] decodeLoop(Bytes bytes) throws IOException {
+        bytes.megabytes += megabytes;
+        HuffmanCompressor.BitInputStream in = new HuffmanCompressor.BitInputStream(ByteBuffer.wrap(bits));
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = (byte) table.decode(in);
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public long compress(Bytes bytes) throws IOException {
+        bytes.megabytes += megabytes;
+        compressor.compress(raw, packed);
+        return Files.size(packed);
+    }
+
+    @Benchmark
+    public long decompress(Bytes bytes) throws IOException {
+        bytes.megabytes += megabytes;
+        compressor.decompress(packed, restored);
+        return Files.size(restored);
+    }
+
+    /**
+     * Bytes counts the original megabytes a benchmark thread has processed
+     * in the current iteration, which JMH reports per second next to the
+     * operation rate.
+     *
+     * Files are part of a larger team project.
+     * @author Adesoye Oyeyiola
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            megabytes = 0;
+        }
+    }
+
+    /**
+     * Generates benchmark input with a chosen entropy.
+     * - text: words drawn from a small vocabulary, favouring common ones
+     * - random: uniformly random bytes, which do not compress
+     * - skewed: symbol k appears with probability 1/2^(k+1)
+     * - single: one repeated byte
+     *
+     * @param kind the kind of data
+     * @param size the number of bytes
+     * @param rnd  the random source
+     * @return the generated bytes
+     */
+    static byte[] generate(String kind, int size, Random rnd) {
+        byte[] data = new byte[size];
+        switch (kind) {
+            case "text": {
+                String[] words = ("the of and to in is was that for on with as by at from his "
+                        + "huffman tree code symbol frequency block stream table decode encode").split(" ");
+                int i = 0;
+                while (i < size) {
+                    int w = Math.min(rnd.nextInt(words.length), rnd.nextInt(words.length));
+                    for (char c : words[w].toCharArray()) {
+                        if (i < size) {
+                            data[i++] = (byte) c;
+                        }
+                    }
+                    if (i < size) {
+                        data[i++] = (byte) (rnd.nextInt(12) == 0 ? '\n' : ' ');
+                    }
+                }
+                break;
+            }
+            case "random":
+                rnd.nextBytes(data);
+                break;
+            case "skewed":
+                for (int i = 0; i < size; i++) {
+                    data[i] = (byte) ('a' + Long.numberOfTrailingZeros(rnd.nextLong() | Long.MIN_VALUE));
+                }
+                break;
+            case "single":
+                Arrays.fill(data, (byte) 'a');
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown data kind: " + kind);
+        }
+        return data;
+    }
+
+    /**
+     * Parses a size such as 512, 64K, 16M or 1G.
+     *
+     * @param s the size string
+     * @return the size in bytes
+     */
+    static int parseSize(String s) {
+        char unit = Character.toUpperCase(s.charAt(s.length() - 1));
+        int shift = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+        long n = Long.parseLong(shift == 0 ? s : s.substring(0, s.length() - 1)) << shift;
+        if (n <= 0 || n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Size out of range: " + s);
+        }
+        return (int) n;
+    }
+}
@@ -0,0 +1,77 @@
+package huffman;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * VectorScanBenchmark compares the byte scans with and without the Vector
+ * API: the frequency count and the run check, over the same inputs as
+ * HuffmanBenchmark. The forked JVM is given the Vector API module, and
+ * the vectorized parameter picks the code path, so both run in the same
+ * JVM. To see AVX2 on a machine with AVX-512, limit the JIT with
+ *
+ *     java -jar jmh/target/benchmarks.jar VectorScanBenchmark -jvmArgsPrepend -XX:UseAVX=2
+ *
+ * (-jvmArgsAppend would replace the module option rather than add to it).
+ *
+ * Results are operations per second, with the MB/s processed as the
+ * megabytes secondary result, as in HuffmanBenchmark.
+ *
+ * Files are part of a larger team project.
+ * @author Adesoye Oyeyiola
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorScanBenchmark {
+
+    @Param({"64K", "1M"})
+    public String size;
+
+    @Param({"text", "random", "skewed", "single"})
+    public String kind;
+
+    @Param({"true", "false"})
+    public boolean vectorized;
+
+    private ByteBuffer buf;
+    private double megabytes;
+
+    @Setup
+    public void setUp() {
+        if (vectorized && !VectorScan.ENABLED) {
+            throw new IllegalStateException("The Vector API is not available in this JVM");
+        }
+        int n = HuffmanBenchmark.parseSize(size);
+        megabytes = n / 1e6;
+        buf = ByteBuffer.wrap(HuffmanBenchmark.generate(kind, n, new Random(n)));
+    }
+
+    @Benchmark
+    public long histogram(HuffmanBenchmark.Bytes bytes) {
+        bytes.megabytes += megabytes;
+        return ByteHistogram.of(buf, vectorized).total();
+    }
+
+    @Benchmark
+    public int runLength(HuffmanBenchmark.Bytes bytes) {
+        bytes.megabytes += megabytes;
+        return BlockCodec.runLength(buf, vectorized);
+    }
+}